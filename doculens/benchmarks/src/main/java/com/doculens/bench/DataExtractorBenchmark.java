@@ -0,0 +1,83 @@
+package com.doculens.bench;
+
+import com.doculens.DataExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Percentage / year-value extraction over whole documents.
+ * legacyRegex is the pair of regular expressions DataExtractor used before the single-pass
+ * matcher, kept here as the baseline to compare against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataExtractorBenchmark {
+
+    private static final Pattern PERCENTAGE = Pattern.compile("(\\d+)%\\s+of\\s+([\\w\\s]+)");
+    private static final Pattern YEAR_VALUE = Pattern.compile("(?i)in\\s+(19|20)\\d{2}.*?(\\d+)");
+
+    @Param({"small", "pages100", "pages1000", "adversarial"})
+    public String corpus;
+
+    private String text;
+    private final DataExtractor extractor = new DataExtractor();
+
+    @Setup
+    public void setUp() {
+        text = SyntheticCorpus.text(corpus);
+    }
+
+    @Benchmark
+    public DataExtractor.Extraction extractAll() {
+        return extractor.extractAll(text);
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        // determineBestChartType
+        blackhole.consume(PERCENTAGE.matcher(text).find() || YEAR_VALUE.matcher(text).find());
+
+        // extractPieData
+        Map<String, Integer> pie = new HashMap<>();
+        Matcher matcher = PERCENTAGE.matcher(text);
+        while (matcher.find()) {
+            pie.put(matcher.group(2).trim(), parseOrSkip(matcher.group(1)));
+        }
+
+        // extractLineData
+        Map<String, Integer> line = new TreeMap<>();
+        matcher = YEAR_VALUE.matcher(text);
+        while (matcher.find()) {
+            String digits = matcher.group(0).replaceAll("[^0-9]", "");
+            line.put(digits.substring(0, 4), parseOrSkip(digits.substring(4)));
+        }
+        blackhole.consume(pie);
+        blackhole.consume(line);
+    }
+
+    // The old code threw on numbers too big for an int; the baseline skips them like the new code does
+    private static int parseOrSkip(String digits) {
+        return digits.length() > 9 ? -1 : Integer.parseInt(digits);
+    }
+}
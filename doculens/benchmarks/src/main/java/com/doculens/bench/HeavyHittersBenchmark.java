@@ -0,0 +1,86 @@
+package com.doculens.bench;
+
+import com.doculens.SpaceSavingCounter;
+import com.doculens.TextAnalyzer;
+import com.doculens.WordCounter;
+import com.doculens.WordCounts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact word counting (WordCounter) against the fixed-memory Space-Saving sketch, on ordinary report
+ * text and on a huge-vocabulary "archive". Time is the benchmark score; run with -prof gc for the
+ * allocation side. At the end of each trial the sketch's accuracy is printed: how many of the exact
+ * top 10 it found, its worst actual over-count and the error bound it reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeavyHittersBenchmark {
+
+    @Param({"pages1000", "archive"})
+    public String corpus;
+
+    // "exact", or "approx" followed by the entry budget
+    @Param({"exact", "approx1000", "approx10000"})
+    public String counter;
+
+    private String text;
+    private final TextAnalyzer analyzer = new TextAnalyzer(10);
+    private WordCounts lastCounts;
+
+    @Setup
+    public void setUp() {
+        text = SyntheticCorpus.text(corpus);
+    }
+
+    @Benchmark
+    public Map<String, Integer> countAndTopK() {
+        WordCounts counts = newCounter();
+        analyzer.countWords(text, counts);
+        lastCounts = counts;
+        return analyzer.getTopWords(counts, 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportAccuracy() {
+        WordCounter exact = new WordCounter();
+        analyzer.countWords(text, exact);
+        Map<String, Integer> approximate = lastCounts.topK(10);
+        Set<String> found = new HashSet<>(exact.topK(10).keySet());
+        found.retainAll(approximate.keySet());
+        int worstOverCount = 0;
+        for (Map.Entry<String, Integer> entry : approximate.entrySet()) {
+            worstOverCount = Math.max(worstOverCount, entry.getValue() - exact.get(entry.getKey()));
+        }
+        System.out.printf("%n[%s/%s] tracked %d of %d words, top-10 found %d/10, worst over-count %d,"
+                        + " reported bound %d%n", corpus, counter, lastCounts.size(), exact.size(), found.size(),
+                worstOverCount, lastCounts.getMaxError());
+    }
+
+    private WordCounts newCounter() {
+        if (counter.equals("exact")) {
+            return new WordCounter();
+        }
+        return new SpaceSavingCounter(Integer.parseInt(counter.substring("approx".length())));
+    }
+}
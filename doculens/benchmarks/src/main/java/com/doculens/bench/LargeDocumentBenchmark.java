@@ -0,0 +1,70 @@
+package com.doculens.bench;
+
+import com.doculens.AnalysisListener;
+import com.doculens.AnalysisResult;
+import com.doculens.DocumentParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scanned archive bigger than the heap: 400 pages with a 1 MB image each (~400 MB) analysed in
+ * a JVM with a 128 MB heap. The PDF memory budget sends the streams beyond it to a temp file, so
+ * the analysis finishes; the benchmark fails if it does not (or finds the wrong page count).
+ * Needs ~1 GB of free disk for the PDF and the temp files, so it is left out of the default run:
+ * ask for it with -Djmh.args="LargeDocument".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+public class LargeDocumentBenchmark {
+
+    private static final int PAGES = 400;
+    private static final int IMAGE_BYTES_PER_PAGE = 1024 * 1024;
+
+    private File pdfFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File dir = Files.createTempDirectory("doculens-bench").toFile();
+        pdfFile = SyntheticCorpus.writeScannedPdf(PAGES, IMAGE_BYTES_PER_PAGE, new File(dir, "scanned.pdf"));
+        // A failed run (out of memory) never gets to tearDown, so also clean up when the fork exits
+        dir.deleteOnExit();
+        pdfFile.deleteOnExit();
+        System.out.printf("%n%d MB PDF, %d MB max heap%n", pdfFile.length() >> 20,
+                Runtime.getRuntime().maxMemory() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pdfFile.delete();
+        pdfFile.getParentFile().delete();
+    }
+
+    // The whole pipeline (load, thumbnail, fingerprints, text and analysis), keeping no page text
+    @Benchmark
+    public AnalysisResult analyze() throws IOException {
+        AnalysisResult result = new DocumentParser(0).parse(pdfFile, "scanned", AnalysisListener.NONE).getAnalysis();
+        if (result.getPageCount() != PAGES || result.getWordData().isEmpty()) {
+            throw new IllegalStateException("Expected " + PAGES + " pages of text, got " + result.getPageCount());
+        }
+        return result;
+    }
+}
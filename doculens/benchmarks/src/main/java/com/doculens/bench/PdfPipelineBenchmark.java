@@ -0,0 +1,93 @@
+package com.doculens.bench;
+
+import com.doculens.AnalysisAccumulator;
+import com.doculens.AnalysisListener;
+import com.doculens.AnalysisResult;
+import com.doculens.CachedDocument;
+import com.doculens.DocumentParser;
+import com.doculens.PageTextStripper;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PDF stages: loading, text stripping, and the whole parse the app runs on "Visualize"
+ * (load + thumbnail + streamed analysis, parallel for big documents).
+ * The PDFs are generated once per trial into a temp directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PdfPipelineBenchmark {
+
+    @Param({"small", "pages100", "pages1000"})
+    public String corpus;
+
+    private File pdfFile;
+    private int pageCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pageCount = SyntheticCorpus.pageCount(corpus);
+        File dir = Files.createTempDirectory("doculens-bench").toFile();
+        pdfFile = SyntheticCorpus.writePdf(pageCount, new File(dir, corpus + ".pdf"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pdfFile.delete();
+        pdfFile.getParentFile().delete();
+    }
+
+    @Benchmark
+    public int loadDocument() throws IOException {
+        try (PDDocument document = PDDocument.load(pdfFile)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    @Benchmark
+    public long stripText() throws IOException {
+        try (PDDocument document = PDDocument.load(pdfFile)) {
+            long[] chars = {0};
+            new PageTextStripper(AnalysisListener.NONE, pageCount)
+                    .streamPages(document, (pageNo, text) -> chars[0] += text.length());
+            return chars[0];
+        }
+    }
+
+    // Strip + extractors + word count on one thread (what the batch mode does per document)
+    @Benchmark
+    public AnalysisResult analyzeSerially() throws IOException {
+        try (PDDocument document = PDDocument.load(pdfFile)) {
+            AnalysisAccumulator accumulator = new AnalysisAccumulator();
+            new PageTextStripper(AnalysisListener.NONE, pageCount).streamPages(document, accumulator::addPage);
+            return accumulator.toResult(pageCount);
+        }
+    }
+
+    // The full parse behind the dashboard (without the cache, so every call does the work)
+    @Benchmark
+    public CachedDocument parseForDashboard() throws IOException {
+        return new DocumentParser(64L * 1024 * 1024).parse(pdfFile, corpus, AnalysisListener.NONE);
+    }
+}
@@ -0,0 +1,72 @@
+package com.doculens.bench;
+
+import com.doculens.PhraseCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two- and three-word phrase counting: PhraseCounter (int word ids packed into a long, open
+ * addressing) against the obvious HashMap of "word word" Strings. The baseline skips the stop word
+ * rules, so it does a little less work; run with -prof gc to see what the Strings cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhraseBenchmark {
+
+    @Param({"pages100", "pages1000"})
+    public String corpus;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = SyntheticCorpus.text(corpus);
+    }
+
+    @Benchmark
+    public Map<String, Integer> phraseCounter() {
+        PhraseCounter counter = new PhraseCounter();
+        counter.addText(text);
+        return counter.topK(10);
+    }
+
+    @Benchmark
+    public Map<String, Integer> stringHashMap() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String line : text.split("[\\n.,;:!?]")) {
+            List<String> words = new ArrayList<>();
+            for (String token : line.split("\\s+")) {
+                String word = token.replaceAll("[^a-zA-Z]", "").toLowerCase();
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            for (int i = 1; i < words.size(); i++) {
+                counts.merge(words.get(i - 1) + " " + words.get(i), 1, Integer::sum);
+                if (i > 1) {
+                    counts.merge(words.get(i - 2) + " " + words.get(i - 1) + " " + words.get(i), 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+}
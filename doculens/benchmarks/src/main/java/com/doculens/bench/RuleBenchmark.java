@@ -0,0 +1,86 @@
+package com.doculens.bench;
+
+import com.doculens.ExtractionRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What user rules cost per document: the same rule set run as one matcher over the text (what
+ * DocuLens does) and as one case-insensitive regex per rule, the obvious way to write it. The regex
+ * cost grows with the number of rules, the matcher's should barely move.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RuleBenchmark {
+
+    // Words that occur in the synthetic corpus, so some of every rule's terms really match
+    private static final String[] CORPUS_WORDS = {
+        "revenue", "growth", "customer", "market", "segment", "quarterly", "report", "performance",
+        "digital", "regional", "margin", "operating", "expenses", "forecast", "strategy", "product"
+    };
+
+    @Param({"10", "200"})
+    public int ruleCount;
+
+    private String text;
+    private ExtractionRules rules;
+    private List<Pattern> patterns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = SyntheticCorpus.text("pages1000");
+        List<String> lines = new ArrayList<>();
+        patterns = new ArrayList<>();
+        for (int r = 0; r < ruleCount; r++) {
+            List<String> terms = List.of(
+                    CORPUS_WORDS[r % CORPUS_WORDS.length],
+                    CORPUS_WORDS[(r * 7 + 3) % CORPUS_WORDS.length] + " growth",
+                    "term" + r + "x");
+            lines.add("count: Rule " + r + " = " + String.join(", ", terms));
+            StringJoiner alternatives = new StringJoiner("|", "\\b(?:", ")\\b");
+            terms.forEach(term -> alternatives.add(Pattern.quote(term)));
+            patterns.add(Pattern.compile(alternatives.toString(), Pattern.CASE_INSENSITIVE));
+        }
+        rules = ExtractionRules.parse(lines, "bench");
+    }
+
+    @Benchmark
+    public Object oneMatcher() {
+        ExtractionRules.Totals totals = rules.newTotals();
+        rules.scan(text, totals, 1);
+        return totals;
+    }
+
+    @Benchmark
+    public long regexPerRule() {
+        long hits = 0;
+        for (Pattern pattern : patterns) {
+            Matcher m = pattern.matcher(text);
+            while (m.find()) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,75 @@
+package com.doculens.bench;
+
+import com.doculens.AnalysisListener;
+import com.doculens.CachedDocument;
+import com.doculens.DocumentParser;
+import com.doculens.StartupWarmUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start: every measurement is a single call in a fresh JVM (one per fork), so class loading,
+ * PDFBox's font scan and JIT start from nothing, like on a real launch.
+ *
+ * firstDocument is what opening the first PDF costs, with warmUp "none" (nothing ran before it)
+ * or "done" (StartupWarmUp ran first, as it does in the background once the window is up).
+ * startupWarmUp is the background warm-up itself (with "done", what a second run still costs).
+ * The time to the first window needs a display, so track that with -Ddoculens.startup.log=true
+ * on the app instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @Param({"none", "done"})
+    public String warmUp;
+
+    private File pdfFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Written by hand: creating it with PDFBox would warm PDFBox up before the measurement
+        File dir = Files.createTempDirectory("doculens-bench").toFile();
+        pdfFile = SyntheticCorpus.writePdfWithoutPdfBox(SyntheticCorpus.pageCount("small"), new File(dir, "small.pdf"));
+        if ("done".equals(warmUp)) {
+            StartupWarmUp.run();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pdfFile.delete();
+        pdfFile.getParentFile().delete();
+    }
+
+    // Load + thumbnail + analysis of a small PDF, the work behind the first "Visualize"
+    @Benchmark
+    public CachedDocument firstDocument() throws IOException {
+        return new DocumentParser(64L * 1024 * 1024).parse(pdfFile, "small", AnalysisListener.NONE);
+    }
+
+    @Benchmark
+    public void startupWarmUp() {
+        StartupWarmUp.run();
+    }
+}
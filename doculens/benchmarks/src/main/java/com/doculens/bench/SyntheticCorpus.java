@@ -0,0 +1,378 @@
+package com.doculens.bench;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the benchmark inputs: report-like text with percentages, year/value sentences and
+ * ordinary prose, as plain text or as a PDF. Everything comes from a fixed seed, so every run
+ * (and every machine) benchmarks exactly the same documents without downloading anything.
+ */
+public final class SyntheticCorpus {
+
+    public static final int LINES_PER_PAGE = 45;
+    public static final int TABLE_ROWS = 10; // Per page of writeTablePdf
+
+    private static final long SEED = 20240601L;
+
+    private static final String[] WORDS = {
+        "revenue", "growth", "customer", "market", "segment", "quarterly", "report", "performance",
+        "digital", "regional", "margin", "operating", "expenses", "forecast", "strategy", "product",
+        "investment", "capital", "services", "analysis", "increase", "decrease", "compared", "previous",
+        "the", "and", "of", "to", "in", "that", "for", "with", "was", "from", "which", "their", "also"
+    };
+    private static final String[] GROUPS = {
+        "respondents", "customers in the north region", "new subscribers", "enterprise clients", "students"
+    };
+
+    private SyntheticCorpus() {
+    }
+
+    // The named corpora the benchmarks take as a @Param
+    public static String text(String corpus) {
+        switch (corpus) {
+            case "small":
+                return pages(5);
+            case "pages100":
+                return pages(100);
+            case "pages1000":
+                return pages(1000);
+            case "adversarial":
+                return adversarialLines(200, 2000);
+            case "archive":
+                return zipfWords(500_000, 2_000_000);
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + corpus);
+        }
+    }
+
+    public static int pageCount(String corpus) {
+        switch (corpus) {
+            case "small":
+                return 5;
+            case "pages100":
+                return 100;
+            case "pages1000":
+                return 1000;
+            default:
+                throw new IllegalArgumentException("No PDF for corpus: " + corpus);
+        }
+    }
+
+    // The text of 'pageCount' pages, each page ending in a newline like PDFTextStripper's output
+    public static String pages(int pageCount) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines(pageCount)) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lines built to hurt backtracking matchers: long lines packed with "in 20xx" mentions where
+     * the last one has no number after it, and long digit runs that are never followed by '%'.
+     */
+    public static String adversarialLines(int lineCount, int wordsPerLine) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; line < lineCount; line++) {
+            if (line % 2 == 0) {
+                for (int w = 0; w < wordsPerLine; w++) {
+                    if (w % 8 == 0) {
+                        sb.append("in ").append(1900 + random.nextInt(130)).append(' ');
+                    } else {
+                        sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                    }
+                }
+                sb.append("in 2020 and nothing after it");
+            } else {
+                for (int d = 0; d < wordsPerLine; d++) {
+                    sb.append((char) ('0' + random.nextInt(10)));
+                }
+                sb.append(" of ").append(GROUPS[random.nextInt(GROUPS.length)]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A huge-vocabulary text like an OCR'd archive: 'wordCount' words drawn from 'vocabulary'
+     * distinct made-up words with Zipf frequencies (word n is 1/n as common as the most common one).
+     */
+    public static String zipfWords(int vocabulary, int wordCount) {
+        Random random = new Random(SEED);
+        double[] cumulative = new double[vocabulary];
+        double total = 0;
+        for (int i = 0; i < vocabulary; i++) {
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        StringBuilder sb = new StringBuilder(wordCount * 8);
+        for (int w = 0; w < wordCount; w++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            sb.append(letterWord(rank < 0 ? -rank - 1 : rank)).append(w % 15 == 14 ? '\n' : ' ');
+        }
+        return sb.toString();
+    }
+
+    // Writes a PDF with the same lines as pages(pageCount), one page of the text per PDF page
+    public static File writePdf(int pageCount, File target) throws IOException {
+        List<String> lines = lines(pageCount);
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pageCount; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(15);
+                    content.newLineAtOffset(50, 730);
+                    for (int l = 0; l < LINES_PER_PAGE; l++) {
+                        content.showText(lines.get(p * LINES_PER_PAGE + l));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(target);
+        }
+        return target;
+    }
+
+    /**
+     * Like writePdf, but every page has a table under its text: a label column and four right-aligned
+     * number columns under a header row, TABLE_ROWS rows long. Fewer text lines, so the page still fits.
+     */
+    public static File writeTablePdf(int pageCount, File target) throws IOException {
+        List<String> lines = lines(pageCount);
+        Random random = new Random(SEED);
+        float[] columnRight = {260, 340, 420, 500};
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pageCount; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    float y = 730;
+                    for (int l = 0; l < LINES_PER_PAGE - TABLE_ROWS - 4; l++, y -= 15) {
+                        showText(content, 50, y, lines.get(p * LINES_PER_PAGE + l));
+                    }
+                    y -= 15;
+                    showText(content, 50, y, "Region");
+                    for (int c = 0; c < columnRight.length; c++) {
+                        showRightAligned(content, columnRight[c], y, String.valueOf(2020 + c));
+                    }
+                    for (int r = 0; r < TABLE_ROWS; r++) {
+                        y -= 15;
+                        showText(content, 50, y, GROUPS[r % GROUPS.length] + " " + (r + 1));
+                        for (float right : columnRight) {
+                            showRightAligned(content, right, y, String.format("%,d", random.nextInt(100000)));
+                        }
+                    }
+                }
+            }
+            document.save(target);
+        }
+        return target;
+    }
+
+    private static void showText(PDPageContentStream content, float x, float y, String text) throws IOException {
+        content.beginText();
+        content.setFont(PDType1Font.HELVETICA, 10);
+        content.newLineAtOffset(x, y);
+        content.showText(text);
+        content.endText();
+    }
+
+    private static void showRightAligned(PDPageContentStream content, float right, float y, String text)
+            throws IOException {
+        showText(content, right - PDType1Font.HELVETICA.getStringWidth(text) / 100, y, text);
+    }
+
+    /**
+     * The same PDF as writePdf, written by hand instead of through PDFBox, so a benchmark that
+     * measures PDFBox's cold start can create its input without warming PDFBox up first.
+     */
+    public static File writePdfWithoutPdfBox(int pageCount, File target) throws IOException {
+        List<String> lines = lines(pageCount);
+        List<String> objects = new ArrayList<>();
+        objects.add("<< /Type /Catalog /Pages 2 0 R >>");
+        StringBuilder kids = new StringBuilder();
+        for (int p = 0; p < pageCount; p++) {
+            kids.append(4 + 2 * p).append(" 0 R ");
+        }
+        objects.add("<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount + " >>");
+        objects.add("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>");
+        for (int p = 0; p < pageCount; p++) {
+            StringBuilder content = new StringBuilder("BT /F1 10 Tf 15 TL 50 730 Td\n");
+            for (int l = 0; l < LINES_PER_PAGE; l++) {
+                String line = lines.get(p * LINES_PER_PAGE + l)
+                        .replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)");
+                content.append('(').append(line).append(") Tj T*\n");
+            }
+            content.append("ET");
+            objects.add("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 3 0 R >> >>"
+                    + " /Contents " + (5 + 2 * p) + " 0 R >>");
+            objects.add("<< /Length " + content.length() + " >>\nstream\n" + content + "\nendstream");
+        }
+
+        // Plain ASCII, so character offsets are byte offsets
+        StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+        int[] offsets = new int[objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            offsets[i] = pdf.length();
+            pdf.append(i + 1).append(" 0 obj\n").append(objects.get(i)).append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ").append(objects.size() + 1).append("\n0000000000 65535 f \n");
+        for (int offset : offsets) {
+            pdf.append(String.format("%010d 00000 n \n", offset));
+        }
+        pdf.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\n")
+                .append("startxref\n").append(xref).append("\n%%EOF\n");
+        Files.write(target.toPath(), pdf.toString().getBytes(StandardCharsets.US_ASCII));
+        return target;
+    }
+
+    /**
+     * A "scanned archive": every page has its text plus a full-page greyscale image of random
+     * (incompressible) bytes, so the file is about pageCount * imageBytesPerPage bytes. Written
+     * straight to disk, one object at a time, so it can be far bigger than the heap.
+     */
+    public static File writeScannedPdf(int pageCount, int imageBytesPerPage, File target) throws IOException {
+        List<String> lines = lines(pageCount);
+        int side = (int) Math.sqrt(imageBytesPerPage);
+        byte[] image = new byte[side * side];
+        Random random = new Random(SEED);
+        // Objects: 1 catalog, 2 pages, 3 font, then per page: page, content, image
+        int objectCount = 3 + 3 * pageCount;
+        long[] offsets = new long[objectCount];
+        try (CountingOutputStream out = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target.toPath()), 1 << 16))) {
+            out.ascii("%PDF-1.4\n");
+            StringBuilder kids = new StringBuilder();
+            for (int p = 0; p < pageCount; p++) {
+                kids.append(4 + 3 * p).append(" 0 R ");
+            }
+            offsets[0] = out.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+            offsets[1] = out.object(2, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount + " >>");
+            offsets[2] = out.object(3, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>");
+            for (int p = 0; p < pageCount; p++) {
+                int pageObject = 4 + 3 * p;
+                StringBuilder content = new StringBuilder("q 612 0 0 792 0 0 cm /Im1 Do Q\nBT /F1 10 Tf 15 TL 50 730 Td\n");
+                for (int l = 0; l < LINES_PER_PAGE; l++) {
+                    String line = lines.get(p * LINES_PER_PAGE + l)
+                            .replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)");
+                    content.append('(').append(line).append(") Tj T*\n");
+                }
+                content.append("ET");
+                offsets[pageObject - 1] = out.object(pageObject, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792]"
+                        + " /Resources << /Font << /F1 3 0 R >> /XObject << /Im1 " + (pageObject + 2) + " 0 R >> >>"
+                        + " /Contents " + (pageObject + 1) + " 0 R >>");
+                offsets[pageObject] = out.object(pageObject + 1,
+                        "<< /Length " + content.length() + " >>\nstream\n" + content + "\nendstream");
+                random.nextBytes(image);
+                offsets[pageObject + 1] = out.count;
+                out.ascii((pageObject + 2) + " 0 obj\n<< /Type /XObject /Subtype /Image /Width " + side + " /Height " + side
+                        + " /ColorSpace /DeviceGray /BitsPerComponent 8 /Length " + image.length + " >>\nstream\n");
+                out.write(image);
+                out.ascii("\nendstream\nendobj\n");
+            }
+            long xref = out.count;
+            out.ascii("xref\n0 " + (objectCount + 1) + "\n0000000000 65535 f \n");
+            for (long offset : offsets) {
+                out.ascii(String.format("%010d 00000 n \n", offset));
+            }
+            out.ascii("trailer\n<< /Size " + (objectCount + 1) + " /Root 1 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+        }
+        return target;
+    }
+
+    // Knows the byte offset of everything it writes, for the PDF's cross-reference table
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        void ascii(String text) throws IOException {
+            write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        // Writes "n 0 obj ... endobj" and returns where it starts
+        long object(int number, String body) throws IOException {
+            long start = count;
+            ascii(number + " 0 obj\n" + body + "\nendobj\n");
+            return start;
+        }
+    }
+
+    private static List<String> lines(int pageCount) {
+        Random random = new Random(SEED);
+        List<String> lines = new ArrayList<>(pageCount * LINES_PER_PAGE);
+        for (int i = 0; i < pageCount * LINES_PER_PAGE; i++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                    lines.add((1 + random.nextInt(99)) + "% of " + GROUPS[random.nextInt(GROUPS.length)]
+                            + " said the service improved");
+                    break;
+                case 1:
+                    lines.add("In " + (1990 + random.nextInt(35)) + " the " + WORDS[random.nextInt(8)]
+                            + " reached " + random.nextInt(100000) + " units");
+                    break;
+                default:
+                    lines.add(sentence(random, 8 + random.nextInt(10)));
+            }
+        }
+        return lines;
+    }
+
+    // Letters only (the word counter drops digits), at least 3 of them so no word is too short to count
+    private static String letterWord(int number) {
+        StringBuilder sb = new StringBuilder("qx");
+        do {
+            sb.append((char) ('a' + number % 26));
+            number /= 26;
+        } while (number > 0);
+        return sb.toString();
+    }
+
+    private static String sentence(Random random, int wordCount) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < wordCount; w++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (w == 0) {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            sb.append(w == 0 ? "" : " ").append(word);
+        }
+        return sb.append('.').toString();
+    }
+}
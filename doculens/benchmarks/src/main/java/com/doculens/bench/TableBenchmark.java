@@ -0,0 +1,80 @@
+package com.doculens.bench;
+
+import com.doculens.AnalysisListener;
+import com.doculens.PageTextStripper;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What table extraction adds to the text strip: the same PDF (text plus a table on every page)
+ * stripped as before and with a table consumer, which records every word's position and groups the
+ * page into lines, cells and columns. The difference is the per-page cost of finding the tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TableBenchmark {
+
+    @Param({"pages100", "pages1000"})
+    public String corpus;
+
+    private File pdfFile;
+    private int pageCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pageCount = SyntheticCorpus.pageCount(corpus);
+        File dir = Files.createTempDirectory("doculens-bench").toFile();
+        pdfFile = SyntheticCorpus.writeTablePdf(pageCount, new File(dir, corpus + "-tables.pdf"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pdfFile.delete();
+        pdfFile.getParentFile().delete();
+    }
+
+    @Benchmark
+    public long stripText() throws IOException {
+        try (PDDocument document = PDDocument.load(pdfFile)) {
+            long[] chars = {0};
+            new PageTextStripper(AnalysisListener.NONE, pageCount)
+                    .streamPages(document, (pageNo, text) -> chars[0] += text.length());
+            return chars[0];
+        }
+    }
+
+    @Benchmark
+    public long stripTextAndTables() throws IOException {
+        try (PDDocument document = PDDocument.load(pdfFile)) {
+            long[] charsAndSeries = {0, 0};
+            PageTextStripper stripper = new PageTextStripper(AnalysisListener.NONE, pageCount);
+            stripper.setTableConsumer((pageNo, tables) -> charsAndSeries[1] += tables.size());
+            stripper.streamPages(document, (pageNo, text) -> charsAndSeries[0] += text.length());
+            if (charsAndSeries[1] != 4L * pageCount) {
+                throw new IllegalStateException("Expected 4 series per page, found " + charsAndSeries[1]);
+            }
+            return charsAndSeries[0] + charsAndSeries[1];
+        }
+    }
+}
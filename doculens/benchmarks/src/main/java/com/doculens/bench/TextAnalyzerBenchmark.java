@@ -0,0 +1,50 @@
+package com.doculens.bench;
+
+import com.doculens.TextAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word frequency (scan + count + top K) over whole documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextAnalyzerBenchmark {
+
+    @Param({"small", "pages100", "pages1000", "adversarial"})
+    public String corpus;
+
+    private String text;
+    private final TextAnalyzer analyzer = new TextAnalyzer(10);
+
+    @Setup
+    public void setUp() {
+        text = SyntheticCorpus.text(corpus);
+    }
+
+    @Benchmark
+    public Map<String, Integer> getWordFrequency() {
+        return analyzer.getWordFrequency(text);
+    }
+
+    @Benchmark
+    public String getTextStats() {
+        return analyzer.getTextStats(text);
+    }
+}
@@ -0,0 +1,220 @@
+package com.doculens;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals of the analysis, fed one page at a time.
+ * Accumulators built over different page ranges can be merged in any order:
+ * word counts are summed, and for percentages and year values the entry from the
+ * later page wins (the same "last match wins" the extractors use on the full text).
+ *
+ * A page can also be taken out again ({@link #removePage}), so an edited document is updated by
+ * removing the old text of its changed pages and adding the new one. That is why every page's
+ * percentage / year value is kept, not just the latest: removing the last page brings back the one before.
+ *
+ * Tables are kept by page too; the stripper passes them in separately from the text (see
+ * {@link #tableConsumer()}), since finding them needs the word positions the text no longer has.
+ */
+public class AnalysisAccumulator {
+
+    private final DataExtractor extractor = new DataExtractor();
+    private final TextAnalyzer textAnalyzer = new TextAnalyzer();
+    private final KeywordLemmatizer lemmatizer = KeywordLemmatizer.isEnabled() ? KeywordLemmatizer.getInstance() : null;
+
+    // Label -> (page -> value); the value on the highest page is the one shown
+    private final Map<String, TreeMap<Integer, Integer>> pieData = new HashMap<>();
+    private final Map<String, TreeMap<Integer, Integer>> lineData = new HashMap<>();
+    private final WordCounts wordCounts = WordCounts.create();
+    private final int topPhrases = PhraseCounter.configuredTopPhrases();
+    private final PhraseCounter phraseCounts = new PhraseCounter();
+    private final ExtractionRules rules = ExtractionRules.configured();
+    private final ExtractionRules.Totals ruleTotals = rules.newTotals();
+    private final int maxTableSeries = TableExtractor.configuredMaxSeries();
+    private final TreeMap<Integer, List<TableSeries>> tables = new TreeMap<>(); // Page -> its tables' series
+    private int pagesAdded;
+    private int textPages; // Pages with any text, so removing pages can tell when none are left
+
+    // Runs the extractors and the word counter over one page
+    public void addPage(int pageNo, String pageText) {
+        pagesAdded++;
+        if (pageText.trim().isEmpty()) {
+            return;
+        }
+        textPages++;
+
+        // One pass over the page finds both the percentages and the year values
+        addPageValues(pageNo, pageText);
+        countWords(pageText, wordCounts);
+        if (topPhrases > 0) {
+            phraseCounts.addText(pageText);
+        }
+        rules.scan(pageText, ruleTotals, 1);
+    }
+
+    /**
+     * Takes out a page added earlier; pageText must be the exact text it was added with.
+     * Only for exact word counts (see {@link #supportsRemoval()}).
+     */
+    public void removePage(int pageNo, String pageText) {
+        if (!supportsRemoval()) {
+            throw new UnsupportedOperationException("Approximate word counts cannot take pages out");
+        }
+        pagesAdded--;
+        tables.remove(pageNo);
+        if (pageText.trim().isEmpty()) {
+            return;
+        }
+        textPages--;
+
+        // The same extraction finds the same labels, so we know which entries this page added
+        removePageValues(pageNo, pageText);
+
+        WordCounter pageWords = new WordCounter();
+        countWords(pageText, pageWords);
+        pageWords.forEach((word, count) -> wordCounts.add(word, -count));
+        if (topPhrases > 0) {
+            PhraseCounter pagePhrases = new PhraseCounter();
+            pagePhrases.addText(pageText);
+            phraseCounts.subtract(pagePhrases);
+        }
+        rules.scan(pageText, ruleTotals, -1);
+    }
+
+    /**
+     * For a page that only moved (pages were inserted or deleted before it): its words and phrases
+     * stay counted, but its percentages and year values are filed under its page number, so they are
+     * taken out here and put back under the new number with {@link #addPageValues}. Take out every
+     * moved page before putting any back, since old and new numbers overlap.
+     */
+    void removePageValues(int pageNo, String pageText) {
+        DataExtractor.Extraction extraction = extractor.extractAll(pageText);
+        extraction.getPieData().keySet().forEach(key -> removePageValue(pieData, key, pageNo));
+        extraction.getLineData().keySet().forEach(key -> removePageValue(lineData, key, pageNo));
+    }
+
+    void addPageValues(int pageNo, String pageText) {
+        DataExtractor.Extraction extraction = extractor.extractAll(pageText);
+        extraction.getPieData().forEach((key, value) -> pageValues(pieData, key).put(pageNo, value));
+        extraction.getLineData().forEach((key, value) -> pageValues(lineData, key).put(pageNo, value));
+    }
+
+    // For PageTextStripper.setTableConsumer: where the tables of each page go, or null if tables are off
+    public TableConsumer tableConsumer() {
+        return maxTableSeries > 0 ? this::addTables : null;
+    }
+
+    public void addTables(int pageNo, List<TableSeries> pageTables) {
+        tables.put(pageNo, pageTables);
+    }
+
+    // A moved page's tables: taken out under the old number, put back under the new one (like its values)
+    List<TableSeries> takeTables(int pageNo) {
+        return tables.remove(pageNo);
+    }
+
+    void putTables(int pageNo, List<TableSeries> pageTables) {
+        if (pageTables == null) {
+            return;
+        }
+        List<TableSeries> renumbered = new ArrayList<>(pageTables.size());
+        for (TableSeries series : pageTables) {
+            renumbered.add(new TableSeries(series.getName(), pageNo, series.getPoints()));
+        }
+        tables.put(pageNo, renumbered);
+    }
+
+    // False with approximate word counting: a Space-Saving count cannot be taken back
+    public boolean supportsRemoval() {
+        return wordCounts instanceof WordCounter;
+    }
+
+    // Folds another accumulator (usually from a different page range) into this one
+    public void merge(AnalysisAccumulator other) {
+        pagesAdded += other.pagesAdded;
+        textPages += other.textPages;
+        other.pieData.forEach((key, values) -> pageValues(pieData, key).putAll(values));
+        other.lineData.forEach((key, values) -> pageValues(lineData, key).putAll(values));
+        wordCounts.merge(other.wordCounts);
+        phraseCounts.merge(other.phraseCounts);
+        tables.putAll(other.tables);
+        ruleTotals.merge(other.ruleTotals);
+    }
+
+    public int getPagesAdded() {
+        return pagesAdded;
+    }
+
+    // Every word counted so far (not just the top K), for merging documents into a corpus
+    WordCounts getWordCounts() {
+        return wordCounts;
+    }
+
+    // Every phrase counted so far, for merging documents into a corpus
+    PhraseCounter getPhraseCounts() {
+        return phraseCounts;
+    }
+
+    // What the user's extraction rules found so far, for merging documents into a corpus
+    ExtractionRules.Totals getRuleTotals() {
+        return ruleTotals;
+    }
+
+    // Snapshot of the totals so far, in the same shape the dashboard and CSV export use
+    public AnalysisResult toResult(int pageCount) {
+        if (textPages == 0) {
+            return AnalysisResult.noText(pageCount);
+        }
+        Map<String, Integer> pie = new HashMap<>();
+        pieData.forEach((key, values) -> pie.put(key, values.lastEntry().getValue()));
+        Map<String, Integer> line = new TreeMap<>();
+        lineData.forEach((key, values) -> line.put(key, values.lastEntry().getValue()));
+        return new AnalysisResult(pageCount, true, pie, line, textAnalyzer.getTopWords(wordCounts),
+                wordCounts.getMaxError(), phraseCounts.topK(topPhrases), firstTableSeries(),
+                rules.toSeries(ruleTotals));
+    }
+
+    // The series of the first tables in the document, in page order, up to the configured maximum
+    private List<TableSeries> firstTableSeries() {
+        List<TableSeries> series = new ArrayList<>();
+        for (List<TableSeries> pageTables : tables.values()) {
+            for (TableSeries pageSeries : pageTables) {
+                if (series.size() == maxTableSeries) {
+                    return series;
+                }
+                series.add(pageSeries);
+            }
+        }
+        return series;
+    }
+
+    // Rough heap footprint of the totals, for the document cache's budget
+    long estimateSizeBytes() {
+        return 96L * (pieData.size() + lineData.size()) + 64L * wordCounts.size() + 16L * phraseCounts.size()
+                + 512L * tables.size() + 16L * ruleTotals.size();
+    }
+
+    // Lemma mode counts nouns only; it falls back to plain words if CoreNLP could not be loaded
+    private void countWords(String pageText, WordCounts counts) {
+        if (lemmatizer == null || !lemmatizer.countNouns(pageText, textAnalyzer, counts)) {
+            textAnalyzer.countWords(pageText, counts);
+        }
+    }
+
+    private static TreeMap<Integer, Integer> pageValues(Map<String, TreeMap<Integer, Integer>> map, String key) {
+        return map.computeIfAbsent(key, k -> new TreeMap<>());
+    }
+
+    private static void removePageValue(Map<String, TreeMap<Integer, Integer>> map, String key, int pageNo) {
+        TreeMap<Integer, Integer> values = map.get(key);
+        if (values != null) {
+            values.remove(pageNo);
+            if (values.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+}
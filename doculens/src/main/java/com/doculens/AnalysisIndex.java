@@ -0,0 +1,420 @@
+package com.doculens;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk store of analysed documents, so a PDF opened in an earlier session comes back
+ * without being parsed again. One file per document, named after its content hash, holding the
+ * extractor results, the thumbnail and the text of every page in a compact binary layout.
+ *
+ * Files are memory-mapped on read: the results and thumbnail are decoded straight away, the page
+ * texts only when someone asks for a page. Entries written by an older format or an older version
+ * of the extractors are ignored and replaced, and the least recently used entries are deleted once
+ * the directory goes over its size limit.
+ *
+ * Lives in ~/.doculens/index by default (-Ddoculens.index.dir=...), limited to 512 MB
+ * (-Ddoculens.index.maxMb=..., 0 turns the index off).
+ */
+public class AnalysisIndex {
+
+    // Bump ANALYSIS_VERSION whenever DataExtractor or TextAnalyzer would give different results,
+    // and FORMAT_VERSION whenever the file layout below changes
+    static final int ANALYSIS_VERSION = 1;
+    private static final short FORMAT_VERSION = 6;
+    private static final int MAGIC = 0x444C4958; // "DLIX"
+    private static final String EXTENSION = ".dli";
+
+    private static final int FLAG_TEXT_FOUND = 1;
+    private static final int FLAG_PAGE_TEXTS = 2;
+    private static final int FLAG_THUMBNAIL = 4;
+
+    private static final AnalysisIndex INSTANCE = new AnalysisIndex(
+            Paths.get(System.getProperty("doculens.index.dir",
+                    System.getProperty("user.home") + File.separator + ".doculens" + File.separator + "index")),
+            Long.getLong("doculens.index.maxMb", 512) * 1024 * 1024);
+
+    private final Path directory;
+    private final long maxBytes;
+
+    AnalysisIndex(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public static AnalysisIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Returns the stored document for this content hash, or null if there is none
+     * (or it was written by an older version, or cannot be read).
+     */
+    public CachedDocument load(String contentHash) {
+        Path file = entryPath(contentHash);
+        if (!isEnabled() || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.INDEX_READ, contentHash)) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            span.bytes(buffer.capacity());
+            CachedDocument document = decode(contentHash, buffer);
+            if (document == null) {
+                Files.deleteIfExists(file); // Stale version: make room for the new one
+                return null;
+            }
+            span.items(document.getPageCount());
+            // Mark as recently used, for the eviction order
+            file.toFile().setLastModified(System.currentTimeMillis());
+            return document;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable index entry " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the document to the index (replacing any older entry), then trims the index
+     * back under its size limit. Failures are only logged: the index is just a shortcut.
+     */
+    public void save(CachedDocument document) {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = entryPath(document.getContentHash());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.INDEX_WRITE, document.getContentHash())) {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                encode(document, out);
+                span.items(document.getPageCount()).bytes(out.size());
+            }
+            // Rename into place, so readers never see a half-written entry
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evictOverLimit(file);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not save " + file + " to the index: " + e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing more we can do
+            }
+        }
+    }
+
+    private Path entryPath(String contentHash) {
+        return directory.resolve(contentHash + EXTENSION);
+    }
+
+    // --- FILE LAYOUT (big-endian, FORMAT_VERSION 6) ---
+    // Header: int magic, short format version, int analysis version, int top K,
+    // int word count entry budget, byte lemmatised keywords (0/1), int top phrases, int max table series,
+    // int rules signature, int page count, byte flags
+    // 3 maps (percentages, year values, top words): int size, then (string key, int value) each,
+    // then int word count error
+    // Phrase map: int size, then (string key, int value) each
+    // Tables: int count, then per series string name, int page, int point count, (string row, double value) each
+    // Rules: int count, then per series string name, byte kind, byte chart, int entry count,
+    // (string entry, double value) each
+    // if FLAG_THUMBNAIL:  int length, PNG bytes
+    // if FLAG_PAGE_TEXTS: int page count, (int offset, int length) per page, then the UTF-8 text blob
+    // Strings are an int byte length followed by UTF-8 bytes.
+
+    private void encode(CachedDocument document, DataOutputStream out) throws IOException {
+        AnalysisResult analysis = document.getAnalysis();
+        BufferedImage thumbnail = document.getThumbnail();
+        List<String> pageTexts = document.getPageTexts();
+
+        int flags = (analysis.isTextFound() ? FLAG_TEXT_FOUND : 0)
+                | (pageTexts != null ? FLAG_PAGE_TEXTS : 0)
+                | (thumbnail != null ? FLAG_THUMBNAIL : 0);
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeInt(ANALYSIS_VERSION);
+        out.writeInt(currentTopK());
+        out.writeInt(WordCounts.configuredMaxEntries());
+        out.writeBoolean(KeywordLemmatizer.isEnabled());
+        out.writeInt(PhraseCounter.configuredTopPhrases());
+        out.writeInt(TableExtractor.configuredMaxSeries());
+        out.writeInt(ExtractionRules.configured().getSignature());
+        out.writeInt(document.getPageCount());
+        out.writeByte(flags);
+
+        writeMap(out, analysis.getPieData());
+        writeMap(out, analysis.getLineData());
+        writeMap(out, analysis.getWordData());
+        out.writeInt(analysis.getWordCountError());
+        writeMap(out, analysis.getPhraseData());
+        writeTables(out, analysis.getTableData());
+        writeRules(out, analysis.getRuleData());
+
+        if (thumbnail != null) {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(thumbnail, "png", png);
+            out.writeInt(png.size());
+            png.writeTo(out);
+        }
+
+        if (pageTexts != null) {
+            List<byte[]> encoded = new ArrayList<>(pageTexts.size());
+            for (String page : pageTexts) {
+                encoded.add(page.getBytes(StandardCharsets.UTF_8));
+            }
+            out.writeInt(encoded.size());
+            int offset = 0;
+            for (byte[] page : encoded) {
+                out.writeInt(offset);
+                out.writeInt(page.length);
+                offset += page.length;
+            }
+            for (byte[] page : encoded) {
+                out.write(page);
+            }
+        }
+    }
+
+    // Returns null when the entry was written by another format or analysis version
+    private CachedDocument decode(String contentHash, ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION
+                    || buffer.getInt() != ANALYSIS_VERSION || buffer.getInt() != currentTopK()
+                    || buffer.getInt() != WordCounts.configuredMaxEntries()
+                    || (buffer.get() != 0) != KeywordLemmatizer.isEnabled()
+                    || buffer.getInt() != PhraseCounter.configuredTopPhrases()
+                    || buffer.getInt() != TableExtractor.configuredMaxSeries()
+                    || buffer.getInt() != ExtractionRules.configured().getSignature()) {
+                return null;
+            }
+            int pageCount = buffer.getInt();
+            int flags = buffer.get();
+
+            Map<String, Integer> pieData = readMap(buffer, new LinkedHashMap<>());
+            Map<String, Integer> lineData = readMap(buffer, new TreeMap<>());
+            Map<String, Integer> wordData = readMap(buffer, new LinkedHashMap<>()); // Keeps the ranking order
+            int wordCountError = buffer.getInt();
+            Map<String, Integer> phraseData = readMap(buffer, new LinkedHashMap<>());
+            List<TableSeries> tableData = readTables(buffer);
+            List<RuleSeries> ruleData = readRules(buffer);
+            AnalysisResult analysis = (flags & FLAG_TEXT_FOUND) != 0
+                    ? new AnalysisResult(pageCount, true, pieData, lineData, wordData, wordCountError, phraseData,
+                    tableData, ruleData)
+                    : AnalysisResult.noText(pageCount);
+
+            BufferedImage thumbnail = null;
+            if ((flags & FLAG_THUMBNAIL) != 0) {
+                byte[] png = new byte[buffer.getInt()];
+                buffer.get(png);
+                thumbnail = ImageIO.read(new ByteArrayInputStream(png));
+            }
+
+            List<String> pageTexts = null;
+            if ((flags & FLAG_PAGE_TEXTS) != 0) {
+                pageTexts = new MappedPageTexts(buffer);
+            }
+            return new CachedDocument(contentHash, pageCount, pageTexts, thumbnail, analysis);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated index entry", e);
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, Integer> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readMap(ByteBuffer buffer, Map<String, Integer> map) {
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            byte[] key = new byte[buffer.getInt()];
+            buffer.get(key);
+            map.put(new String(key, StandardCharsets.UTF_8), buffer.getInt());
+        }
+        return map;
+    }
+
+    // Each series: name, page, then its points as label / double value pairs
+    private static void writeTables(DataOutputStream out, List<TableSeries> tables) throws IOException {
+        out.writeInt(tables.size());
+        for (TableSeries series : tables) {
+            writeString(out, series.getName());
+            out.writeInt(series.getPageNo());
+            out.writeInt(series.getPoints().size());
+            for (Map.Entry<String, Double> point : series.getPoints().entrySet()) {
+                writeString(out, point.getKey());
+                out.writeDouble(point.getValue());
+            }
+        }
+    }
+
+    private static List<TableSeries> readTables(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        List<TableSeries> tables = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = readString(buffer);
+            int pageNo = buffer.getInt();
+            int points = buffer.getInt();
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (int j = 0; j < points; j++) {
+                values.put(readString(buffer), buffer.getDouble());
+            }
+            tables.add(new TableSeries(name, pageNo, values));
+        }
+        return tables;
+    }
+
+    // Each series: name, kind, chart, then its entries as label / double value pairs
+    private static void writeRules(DataOutputStream out, List<RuleSeries> rules) throws IOException {
+        out.writeInt(rules.size());
+        for (RuleSeries series : rules) {
+            writeString(out, series.getName());
+            out.writeByte(series.getKind().ordinal());
+            out.writeByte(series.getChart().ordinal());
+            out.writeInt(series.getValues().size());
+            for (Map.Entry<String, Double> value : series.getValues().entrySet()) {
+                writeString(out, value.getKey());
+                out.writeDouble(value.getValue());
+            }
+        }
+    }
+
+    private static List<RuleSeries> readRules(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        List<RuleSeries> rules = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = readString(buffer);
+            ExtractionRules.Kind kind = ExtractionRules.Kind.values()[buffer.get()];
+            ExtractionRules.Chart chart = ExtractionRules.Chart.values()[buffer.get()];
+            int entries = buffer.getInt();
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (int j = 0; j < entries; j++) {
+                values.put(readString(buffer), buffer.getDouble());
+            }
+            rules.add(new RuleSeries(name, kind, chart, values));
+        }
+        return rules;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The stored word list is only valid for the same top K (and exact/approximate counting) setting
+    private static int currentTopK() {
+        return Integer.getInteger("doculens.topWords", 10);
+    }
+
+    // Deletes least recently used entries until the index fits in its limit again
+    private void evictOverLimit(Path keep) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .collect(Collectors.toList());
+        }
+        long total = 0;
+        for (Path entry : entries) {
+            total += entry.toFile().length();
+        }
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (entry.equals(keep)) {
+                continue;
+            }
+            long size = entry.toFile().length();
+            try {
+                Files.deleteIfExists(entry);
+                total -= size;
+            } catch (IOException e) {
+                // Probably still mapped by a reader on a platform that forbids that; try next time
+            }
+        }
+    }
+
+    /**
+     * The page texts of a stored document, read from the mapped file one page at a time
+     * instead of being copied onto the heap up front.
+     */
+    static class MappedPageTexts extends AbstractList<String> {
+        private final ByteBuffer buffer;
+        private final int tableStart;
+        private final int blobStart;
+        private final int size;
+
+        // Reads the page table at the buffer's position
+        MappedPageTexts(ByteBuffer buffer) {
+            this.size = buffer.getInt();
+            this.tableStart = buffer.position();
+            this.blobStart = tableStart + 8 * size;
+            this.buffer = buffer;
+            if (blobStart > buffer.limit()) {
+                throw new BufferUnderflowException();
+            }
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Page " + index + " of " + size);
+            }
+            int offset = buffer.getInt(tableStart + 8 * index);
+            int length = buffer.getInt(tableStart + 8 * index + 4);
+            byte[] bytes = new byte[length];
+            ByteBuffer page = buffer.duplicate(); // Own position, so reads from several threads don't clash
+            page.position(blobStart + offset);
+            page.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
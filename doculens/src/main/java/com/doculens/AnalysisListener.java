@@ -0,0 +1,34 @@
+package com.doculens;
+
+/**
+ * Receives progress callbacks from {@link DocumentAnalyzer} while it works through
+ * the pipeline stages, and lets the caller cancel the analysis.
+ */
+public interface AnalysisListener {
+
+    // Called once when a new stage begins
+    void stageStarted(AnalysisStage stage);
+
+    // Called as work inside the current stage completes (e.g. pages extracted)
+    void stageProgress(AnalysisStage stage, long workDone, long totalWork);
+
+    // Called every so often with the results of the pages analysed so far, so charts can fill in live
+    default void partialResult(AnalysisResult partial) {
+    }
+
+    // Polled between stages and between pages; returning true stops the analysis
+    default boolean isCancelled() {
+        return false;
+    }
+
+    // A listener that ignores everything (used when nobody is watching)
+    AnalysisListener NONE = new AnalysisListener() {
+        @Override
+        public void stageStarted(AnalysisStage stage) {
+        }
+
+        @Override
+        public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+        }
+    };
+}
@@ -0,0 +1,128 @@
+package com.doculens;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The output of one run of the analysis pipeline: everything the dashboard
+ * and the CSV export need, so neither has to touch the PDF again.
+ */
+public class AnalysisResult {
+
+    private final int pageCount;
+    private final boolean textFound;
+    private final Map<String, Integer> pieData;
+    private final Map<String, Integer> lineData;
+    private final Map<String, Integer> wordData;
+    private final int wordCountError;
+    private final Map<String, Integer> phraseData;
+    private final List<TableSeries> tableData;
+    private final List<RuleSeries> ruleData;
+    private final int sampledPages; // 0 when every page was analysed
+
+    public AnalysisResult(int pageCount, boolean textFound, Map<String, Integer> pieData,
+                          Map<String, Integer> lineData, Map<String, Integer> wordData) {
+        this(pageCount, textFound, pieData, lineData, wordData, 0, Map.of(), List.of(), List.of());
+    }
+
+    /**
+     * 'wordCountError' is how far the word counts may be too high (0 unless counted approximately),
+     * 'phraseData' holds the top two- and three-word phrases, most frequent first, 'tableData' the
+     * numeric columns of the tables found, in page order, and 'ruleData' what the user-defined
+     * extraction rules found, one series per rule.
+     */
+    public AnalysisResult(int pageCount, boolean textFound, Map<String, Integer> pieData,
+                          Map<String, Integer> lineData, Map<String, Integer> wordData, int wordCountError,
+                          Map<String, Integer> phraseData, List<TableSeries> tableData, List<RuleSeries> ruleData) {
+        this(pageCount, textFound, pieData, lineData, wordData, wordCountError, phraseData, tableData, ruleData, 0);
+    }
+
+    private AnalysisResult(int pageCount, boolean textFound, Map<String, Integer> pieData,
+                           Map<String, Integer> lineData, Map<String, Integer> wordData, int wordCountError,
+                           Map<String, Integer> phraseData, List<TableSeries> tableData, List<RuleSeries> ruleData,
+                           int sampledPages) {
+        this.pageCount = pageCount;
+        this.sampledPages = sampledPages;
+        this.textFound = textFound;
+        this.pieData = Collections.unmodifiableMap(pieData);
+        this.lineData = Collections.unmodifiableMap(lineData);
+        this.wordData = Collections.unmodifiableMap(wordData);
+        this.wordCountError = wordCountError;
+        this.phraseData = Collections.unmodifiableMap(phraseData);
+        this.tableData = List.copyOf(tableData);
+        this.ruleData = List.copyOf(ruleData);
+    }
+
+    /**
+     * This result, computed from 'sampledPages' of the pages, as an estimate for the whole document:
+     * keyword, phrase and rule counts and rule totals are scaled up by pageCount / sampledPages;
+     * percentages and year values (and tables, if any) are the ones found on the sample.
+     */
+    public AnalysisResult asEstimate(int sampledPages) {
+        double scale = (double) pageCount / Math.max(1, sampledPages);
+        return new AnalysisResult(pageCount, textFound, pieData, lineData, scaled(wordData, scale),
+                (int) Math.round(wordCountError * scale), scaled(phraseData, scale), tableData,
+                ruleData.stream().map(series -> series.scaled(scale)).collect(Collectors.toList()), sampledPages);
+    }
+
+    private static Map<String, Integer> scaled(Map<String, Integer> counts, double scale) {
+        Map<String, Integer> scaled = new LinkedHashMap<>(); // Keeps the most-frequent-first order
+        counts.forEach((key, count) -> scaled.put(key, (int) Math.round(count * scale)));
+        return scaled;
+    }
+
+    // Result for a PDF with no extractable text (e.g. a scanned image)
+    public static AnalysisResult noText(int pageCount) {
+        return new AnalysisResult(pageCount, false, Map.of(), Map.of(), Map.of());
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public boolean isTextFound() {
+        return textFound;
+    }
+
+    public Map<String, Integer> getPieData() {
+        return pieData;
+    }
+
+    public Map<String, Integer> getLineData() {
+        return lineData;
+    }
+
+    public Map<String, Integer> getWordData() {
+        return wordData;
+    }
+
+    public Map<String, Integer> getPhraseData() {
+        return phraseData;
+    }
+
+    public List<TableSeries> getTableData() {
+        return tableData;
+    }
+
+    public List<RuleSeries> getRuleData() {
+        return ruleData;
+    }
+
+    // True for a quick-look estimate made from a sample of the pages (see QuickLook)
+    public boolean isEstimate() {
+        return sampledPages > 0;
+    }
+
+    // How many pages the estimate was made from, 0 if every page was analysed
+    public int getSampledPages() {
+        return sampledPages;
+    }
+
+    // See WordCounts.getMaxError(): 0 means the word counts are exact
+    public int getWordCountError() {
+        return wordCountError;
+    }
+}
@@ -0,0 +1,42 @@
+package com.doculens;
+
+/**
+ * The stages of the document analysis pipeline, in the order they run.
+ * Each stage carries a label for the progress display and a weight used to
+ * turn per-stage progress into overall progress.
+ */
+public enum AnalysisStage {
+    LOADING_PDF("Loading PDF", 0.05),
+    // Long documents only: a spread-out sample of pages, for estimated charts while the rest is read
+    QUICK_LOOK("Quick look", 0.05),
+    // Text extraction, the extractors and the word count all run page by page in this stage
+    ANALYZING_PAGES("Analyzing pages", 0.90);
+
+    private final String label;
+    private final double weight;
+
+    AnalysisStage(String label, double weight) {
+        this.label = label;
+        this.weight = weight;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    // Sum of the weights of every stage before this one
+    public double getStartFraction() {
+        double start = 0;
+        for (AnalysisStage stage : values()) {
+            if (stage == this) {
+                break;
+            }
+            start += stage.weight;
+        }
+        return start;
+    }
+}
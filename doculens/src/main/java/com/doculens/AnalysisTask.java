@@ -0,0 +1,66 @@
+package com.doculens;
+
+import javafx.concurrent.Task;
+
+import java.io.File;
+
+/**
+ * Background task that runs the {@link DocumentAnalyzer} pipeline off the JavaFX thread.
+ * Progress and the current stage are published through the Task's progress/message
+ * properties. Partial results are published through the value property while pages are
+ * still being read (JavaFX coalesces them onto the FX thread), and the final value is
+ * the result for the whole document.
+ */
+public class AnalysisTask extends Task<AnalysisResult> {
+
+    private final File pdfFile;
+    private final DocumentAnalyzer analyzer = new DocumentAnalyzer();
+
+    public AnalysisTask(File pdfFile) {
+        this.pdfFile = pdfFile;
+    }
+
+    @Override
+    protected AnalysisResult call() throws Exception {
+        return analyzer.analyze(pdfFile, new TaskListener());
+    }
+
+    // Turns per-stage progress into one overall progress value for the progress bar
+    private void updateStage(AnalysisStage stage, long workDone, long totalWork) {
+        double stageFraction = totalWork > 0 ? (double) workDone / totalWork : 0;
+        updateProgress(stage.getStartFraction() + stage.getWeight() * stageFraction, 1.0);
+
+        if (stage == AnalysisStage.ANALYZING_PAGES && totalWork > 0) {
+            updateMessage(String.format("%s (page %d of %d)...", stage.getLabel(), workDone, totalWork));
+        } else if (stage == AnalysisStage.QUICK_LOOK && totalWork > 0) {
+            updateMessage(String.format("%s (%d of %d sample pages)...", stage.getLabel(), workDone, totalWork));
+        } else {
+            updateMessage(stage.getLabel() + "...");
+        }
+    }
+
+    // Bridges the analyzer callbacks onto the Task's progress, value and cancel state
+    private class TaskListener implements AnalysisListener {
+        @Override
+        public void stageStarted(AnalysisStage stage) {
+            updateStage(stage, 0, 1);
+        }
+
+        @Override
+        public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+            updateStage(stage, workDone, totalWork);
+        }
+
+        @Override
+        public void partialResult(AnalysisResult partial) {
+            if (!AnalysisTask.this.isCancelled()) {
+                updateValue(partial);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return AnalysisTask.this.isCancelled();
+        }
+    }
+}
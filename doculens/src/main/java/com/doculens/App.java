@@ -1,9 +1,8 @@
 package com.doculens;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
@@ -29,22 +28,33 @@ public class App extends Application {
     // This is where the application starts, Let the primary stage show the primary.fxml
     @Override
     public void start(Stage stage) throws IOException {
-        scene = new Scene(loadFXML("primary"), 740, 580);
+        StartupTimer.mark("JavaFX ready");
+        scene = ScreenNavigator.createScene(ScreenNavigator.Screen.PRIMARY, 740, 580);
+        StartupTimer.mark("primary screen");
         Image icon = new Image(getClass().getResourceAsStream("/assets/docuLensLogo.png"));
         stage.getIcons().add(icon);
         stage.setTitle("Doculens");// Title
         stage.setScene(scene);
         stage.show();
-    }
-    // This is the method that changes the scene to the fxml file passed as parameter
-    static void setRoot(String fxml) throws IOException {
-        scene.setRoot(loadFXML(fxml));
-    }
-    // This is the method that loads the fxml file passed as parameter
-    private static Parent loadFXML(String fxml) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource(fxml + ".fxml"));
-        return fxmlLoader
-        .load();
+        StartupTimer.mark("window shown");
+
+        // PDFBox, CoreNLP and the other screens only load once the first frame is laid out, so they never delay the window
+        scene.addPostLayoutPulseListener(new Runnable() {
+            private boolean done;
+
+            @Override
+            public void run() {
+                if (done) {
+                    return;
+                }
+                done = true;
+                StartupTimer.mark("first frame");
+                StartupTimer.log();
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                StartupWarmUp.start();
+                ScreenNavigator.preload();
+            }
+        });
     }
     @FXML
     void handleDragOver(DragEvent event) {
@@ -82,6 +92,7 @@ public class App extends Application {
     }// Must match the fx:id exactly!
     // This is the main method that launches the application
     public static void main(String[] args) {
+        StartupTimer.mark("main");
         launch();
     }
 
@@ -0,0 +1,32 @@
+package com.doculens;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of background worker threads, so heavy work (PDF parsing, analysis)
+ * never runs on the JavaFX Application Thread.
+ */
+public final class BackgroundExecutor {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Daemon threads so a running analysis never keeps the JVM alive after the window closes
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable, "doculens-worker-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(THREAD_FACTORY);
+
+    private BackgroundExecutor() {
+    }
+
+    // Runs the given work (usually a javafx.concurrent.Task) on a background thread
+    public static void execute(Runnable work) {
+        POOL.execute(work);
+    }
+}
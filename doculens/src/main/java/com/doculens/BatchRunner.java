@@ -0,0 +1,327 @@
+package com.doculens;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point: analyses every PDF under a directory without starting JavaFX.
+ *
+ * Usage: BatchRunner <inputDir> <outputDir> [--threads N] [--format csv|json|both] [--force]
+ *                    [--combined results.csv|results.json|results.jsonl] [--corpus corpus.json]
+ *
+ * Each document gets its own result file(s) under the output directory, mirroring the input tree
+ * (reports/2024/q1.pdf -> out/reports/2024/q1.csv), and batch-summary.csv lists every document.
+ * Per-stage timings and memory go to batch-diagnostics.txt (see {@link Diagnostics}).
+ * Documents whose results are already newer than the PDF are skipped unless --force is given,
+ * so an interrupted run can simply be started again.
+ *
+ * With --combined every document goes into that one file instead (format from its extension),
+ * written as each document finishes; there are no per-document files then, so nothing is skipped.
+ * --corpus also writes the statistics of all documents together (see {@link CorpusAccumulator}):
+ * each worker thread folds its documents into its own accumulator and they are merged at the end.
+ */
+public class BatchRunner {
+
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+
+    private final Path inputDir;
+    private final Path outputDir;
+    private final int threads;
+    private final boolean writeCsv;
+    private final boolean writeJson;
+    private final boolean force;
+    private final Path combinedFile;
+    private ResultExporter.MultiDocumentWriter combined;
+    private final Path corpusFile;
+    private final List<CorpusAccumulator> corpusPartials = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<CorpusAccumulator> corpusPartial = ThreadLocal.withInitial(() -> {
+        CorpusAccumulator partial = new CorpusAccumulator();
+        corpusPartials.add(partial);
+        return partial;
+    });
+
+    private final List<SummaryRow> summary = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private long startNanos;
+    private long lastProgressMs;
+
+    public BatchRunner(Path inputDir, Path outputDir, int threads, String format, boolean force, Path combinedFile,
+                       Path corpusFile) {
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.threads = threads;
+        this.writeCsv = !format.equals("json");
+        this.writeJson = !format.equals("csv");
+        this.force = force;
+        this.combinedFile = combinedFile;
+        this.corpusFile = corpusFile;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true"); // PDFBox touches AWT for fonts, we have no screen
+
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String format = "both";
+        boolean force = false;
+        Path combinedFile = null;
+        Path corpusFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--format":
+                    format = args[++i].toLowerCase(Locale.ROOT);
+                    break;
+                case "--force":
+                    force = true;
+                    break;
+                case "--combined":
+                    combinedFile = Paths.get(args[++i]);
+                    break;
+                case "--corpus":
+                    corpusFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    positional.add(args[i]);
+            }
+        }
+        if (positional.size() != 2 || threads < 1 || !List.of("csv", "json", "both").contains(format)) {
+            System.err.println("Usage: BatchRunner <inputDir> <outputDir> [--threads N] [--format csv|json|both] [--force]"
+                    + " [--combined <file.csv|.json|.jsonl>] [--corpus <file.csv|.json|.jsonl>]");
+            System.exit(2);
+        }
+
+        BatchRunner runner = new BatchRunner(Paths.get(positional.get(0)), Paths.get(positional.get(1)),
+                threads, format, force, combinedFile, corpusFile);
+        boolean allOk = runner.run();
+        System.exit(allOk ? 0 : 1);
+    }
+
+    /**
+     * Processes the whole tree and writes the summary. Returns false if any document failed.
+     */
+    public boolean run() throws IOException, InterruptedException {
+        if (KeywordLemmatizer.isEnabled()) {
+            KeywordLemmatizer.getInstance().warmUp(); // Loads while we walk the tree
+        }
+        List<Path> pdfs = findPdfs();
+        Files.createDirectories(outputDir);
+        System.out.printf("Found %d PDFs under %s, using %d worker(s)%n", pdfs.size(), inputDir, threads);
+
+        // Fixed number of workers and a short queue: when the queue is full the walking thread
+        // runs the document itself, so we never hold thousands of pending tasks
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        Path combinedTemp = null;
+        if (combinedFile != null) {
+            combinedTemp = combinedFile.resolveSibling(combinedFile.getFileName() + ".tmp");
+            combined = ResultExporter.openMultiDocument(combinedTemp,
+                    ResultExporter.Format.fromFileName(combinedFile.getFileName().toString()));
+        }
+        startNanos = System.nanoTime();
+        lastProgressMs = System.currentTimeMillis();
+        for (Path pdf : pdfs) {
+            pool.execute(() -> processDocument(pdf, pdfs.size()));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        if (combined != null) {
+            combined.close();
+            Files.move(combinedTemp, combinedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        writeSummary();
+        if (corpusFile != null) {
+            writeCorpus();
+        }
+        String diagnostics = Diagnostics.report();
+        writeAtomically(outputDir.resolve("batch-diagnostics.txt"), writer -> writer.write(diagnostics));
+        System.out.println();
+        System.out.print(diagnostics);
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        int analysed = finished.get() - skipped.get() - failed.get();
+        System.out.printf("Done: %d analysed, %d skipped, %d failed in %.1f s (%.1f docs/sec)%n",
+                analysed, skipped.get(), failed.get(), seconds, analysed / Math.max(seconds, 0.001));
+        return failed.get() == 0;
+    }
+
+    private List<Path> findPdfs() throws IOException {
+        try (Stream<Path> walk = Files.walk(inputDir)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void processDocument(Path pdf, int total) {
+        String relative = inputDir.relativize(pdf).toString();
+        Path csvFile = resultPath(pdf, ".csv");
+        Path jsonFile = resultPath(pdf, ".json");
+        long start = System.nanoTime();
+        try {
+            if (combined == null && corpusFile == null && !force && isUpToDate(pdf, csvFile, jsonFile)) {
+                skipped.incrementAndGet();
+                summary.add(new SummaryRow(relative, "skipped", -1, null));
+                return;
+            }
+
+            AnalysisAccumulator accumulator = DocumentParser.streamDocument(pdf.toFile());
+            AnalysisResult result = accumulator.toResult(accumulator.getPagesAdded());
+            if (corpusFile != null) {
+                corpusPartial.get().addDocument(relative, accumulator);
+            }
+            if (combined != null) {
+                combined.write(relative, result);
+            } else {
+                writePerDocument(relative, result, csvFile, jsonFile);
+            }
+            summary.add(new SummaryRow(relative, "ok", (System.nanoTime() - start) / 1_000_000, result));
+        } catch (Exception | LinkageError e) {
+            // One broken PDF must not stop the batch
+            failed.incrementAndGet();
+            if (corpusFile != null) {
+                corpusPartial.get().addFailure(relative, e.toString());
+            }
+            summary.add(new SummaryRow(relative, "failed: " + e, (System.nanoTime() - start) / 1_000_000, null));
+        } finally {
+            reportProgress(finished.incrementAndGet(), total);
+        }
+    }
+
+    private void writePerDocument(String relative, AnalysisResult result, Path csvFile, Path jsonFile)
+            throws IOException {
+        Files.createDirectories(csvFile.getParent());
+        if (writeCsv) {
+            writeAtomically(csvFile, writer -> ResultExporter.writeCsv(result, writer));
+        }
+        if (writeJson) {
+            writeAtomically(jsonFile, writer -> ResultExporter.writeJson(relative, result, writer));
+        }
+    }
+
+    // out/<relative path>.csv for in/<relative path>.pdf
+    private Path resultPath(Path pdf, String extension) {
+        String name = pdf.getFileName().toString();
+        String base = name.substring(0, name.length() - ".pdf".length());
+        Path relativeDir = inputDir.relativize(pdf).getParent();
+        Path dir = relativeDir == null ? outputDir : outputDir.resolve(relativeDir);
+        return dir.resolve(base + extension);
+    }
+
+    private boolean isUpToDate(Path pdf, Path csvFile, Path jsonFile) throws IOException {
+        long pdfModified = Files.getLastModifiedTime(pdf).toMillis();
+        return (!writeCsv || isNewer(csvFile, pdfModified)) && (!writeJson || isNewer(jsonFile, pdfModified));
+    }
+
+    private static boolean isNewer(Path file, long thanMillis) throws IOException {
+        return Files.exists(file) && Files.getLastModifiedTime(file).toMillis() >= thanMillis;
+    }
+
+    // Writes to a temp file and renames it, so a killed run never leaves a half-written result behind
+    // (which the next run would otherwise mistake for a finished one)
+    private static void writeAtomically(Path target, ResultWriter content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            content.write(writer);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private synchronized void reportProgress(int done, int total) {
+        long now = System.currentTimeMillis();
+        if (done < total && now - lastProgressMs < PROGRESS_INTERVAL_MS) {
+            return;
+        }
+        lastProgressMs = now;
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("[%d/%d] %.1f docs/sec%n", done, total, done / Math.max(seconds, 0.001));
+    }
+
+    // Reduce: merge the workers' corpus totals and write them like a single document's result
+    private void writeCorpus() throws IOException {
+        CorpusAccumulator corpus = new CorpusAccumulator();
+        synchronized (corpusPartials) {
+            corpusPartials.forEach(corpus::merge);
+        }
+        AnalysisResult result = corpus.toResult().getCombined();
+        ResultExporter.Format format = ResultExporter.Format.fromFileName(corpusFile.getFileName().toString());
+        writeAtomically(corpusFile, writer -> ResultExporter.write(format, inputDir.toString(), result, writer));
+        System.out.printf("Corpus: %d documents, %d pages -> %s%n", corpus.getDocumentCount(),
+                result.getPageCount(), corpusFile);
+    }
+
+    private void writeSummary() throws IOException {
+        List<SummaryRow> rows;
+        synchronized (summary) {
+            rows = new ArrayList<>(summary);
+        }
+        rows.sort((a, b) -> a.path.compareTo(b.path));
+
+        writeAtomically(outputDir.resolve("batch-summary.csv"), writer -> {
+            writer.write("Document,Status,Pages,Millis,Percentages,YearValues,TopWord\n");
+            for (SummaryRow row : rows) {
+                writer.write(row.toCsv());
+            }
+        });
+    }
+
+    private interface ResultWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    // One line of summary.csv
+    private static class SummaryRow {
+        final String path;
+        final String status;
+        final long millis;
+        final AnalysisResult result;
+
+        SummaryRow(String path, String status, long millis, AnalysisResult result) {
+            this.path = path;
+            this.status = status;
+            this.millis = millis;
+            this.result = result;
+        }
+
+        String toCsv() {
+            String pages = "";
+            String percentages = "";
+            String yearValues = "";
+            String topWord = "";
+            if (result != null) {
+                pages = String.valueOf(result.getPageCount());
+                percentages = String.valueOf(result.getPieData().size());
+                yearValues = String.valueOf(result.getLineData().size());
+                topWord = result.getWordData().isEmpty() ? "" : result.getWordData().keySet().iterator().next();
+            }
+            return String.join(",", quote(path), quote(status), pages, millis < 0 ? "" : String.valueOf(millis),
+                    percentages, yearValues, topWord) + "\n";
+        }
+
+        // File names and error messages can contain commas or quotes
+        private static String quote(String value) {
+            return "\"" + value.replace("\"", "\"\"").replace('\n', ' ') + "\"";
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.doculens;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything DocuLens learned from parsing one PDF: the preview thumbnail, the
+ * extractor results and (when it fit in the memory budget) the text of each page.
+ * Held by {@link DocumentCache} so a document is only parsed once per session.
+ *
+ * A fresh parse also keeps each page's fingerprint and, while the page texts are kept, the running
+ * totals behind the results: with those, a new version of the same file is updated page by page
+ * instead of being parsed again (see {@link DocumentParser#update}).
+ */
+public class CachedDocument {
+
+    private final String contentHash;
+    private final int pageCount;
+    private final List<String> pageTexts;
+    private final BufferedImage thumbnail;
+    private final AnalysisResult analysis;
+    private final long pageTextHeapBytes;
+    private final long[] pageFingerprints;
+    private AnalysisAccumulator totals; // Handed over (once) to the update that builds the next version
+    private final long totalsHeapBytes; // Fixed at creation, so the cache's accounting never drifts
+
+    public CachedDocument(String contentHash, int pageCount, List<String> pageTexts,
+                          BufferedImage thumbnail, AnalysisResult analysis) {
+        this(contentHash, pageCount, pageTexts, thumbnail, analysis, null, null);
+    }
+
+    public CachedDocument(String contentHash, int pageCount, List<String> pageTexts, BufferedImage thumbnail,
+                          AnalysisResult analysis, long[] pageFingerprints, AnalysisAccumulator totals) {
+        this.contentHash = contentHash;
+        this.pageFingerprints = pageFingerprints;
+        // The totals are only any use together with the old page texts (to take the old pages out)
+        this.totals = pageTexts != null && pageFingerprints != null && totals != null && totals.supportsRemoval()
+                ? totals : null;
+        this.totalsHeapBytes = this.totals != null ? this.totals.estimateSizeBytes() : 0;
+        this.pageCount = pageCount;
+        this.pageTextHeapBytes = estimatePageTextBytes(pageTexts);
+        this.pageTexts = pageTexts == null ? null : Collections.unmodifiableList(pageTexts);
+        this.thumbnail = thumbnail;
+        this.analysis = analysis;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    // False for documents whose text was too big to keep (only the results were kept)
+    public boolean hasPageTexts() {
+        return pageTexts != null;
+    }
+
+    // The text of each page, or null if it was not kept
+    public List<String> getPageTexts() {
+        return pageTexts;
+    }
+
+    // Page 0 rendered at 72 DPI, or null if the document has no pages
+    public BufferedImage getThumbnail() {
+        return thumbnail;
+    }
+
+    // The extractor results for the whole document
+    public AnalysisResult getAnalysis() {
+        return analysis;
+    }
+
+    // The fingerprint of each page (see PageFingerprints), or null if they were not taken
+    long[] getPageFingerprints() {
+        return pageFingerprints;
+    }
+
+    // True if a new version of this document can still be built from it page by page
+    synchronized boolean isUpdatable() {
+        return totals != null;
+    }
+
+    // The running totals, for the one update that builds the next version; null if already taken
+    synchronized AnalysisAccumulator takeTotals() {
+        AnalysisAccumulator taken = totals;
+        totals = null;
+        return taken;
+    }
+
+    // Rough heap footprint, used by the cache to stay inside its memory budget
+    public long estimateSizeBytes() {
+        long size = 64 + 4096 + pageTextHeapBytes; // object headers plus a little for the (small) analysis maps
+        if (thumbnail != null) {
+            size += 4L * thumbnail.getWidth() * thumbnail.getHeight();
+        }
+        if (pageFingerprints != null) {
+            size += 8L * pageFingerprints.length;
+        }
+        return size + totalsHeapBytes;
+    }
+
+    private static long estimatePageTextBytes(List<String> pageTexts) {
+        if (pageTexts == null) {
+            return 0;
+        }
+        if (pageTexts instanceof AnalysisIndex.MappedPageTexts) {
+            return 16L * pageTexts.size(); // Read from the mapped index file on demand, not held on the heap
+        }
+        long size = 0;
+        for (String page : pageTexts) {
+            size += 40 + 2L * page.length();
+        }
+        return size;
+    }
+}
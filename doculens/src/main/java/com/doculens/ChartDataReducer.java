@@ -0,0 +1,140 @@
+package com.doculens;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shrinks chart data to a point budget before it reaches the charts, so a long report
+ * cannot produce thousands of chart nodes.
+ *
+ * Line series are thinned with Largest-Triangle-Three-Buckets, which keeps the peaks and dips
+ * that make the shape of the line. The only line series today is the year timeline, which has at
+ * most 200 points (one per year 1900-2099), so it is only thinned with a budget below that. Pie and bar data keep their biggest entries and fold the
+ * rest into one "Other" entry.
+ */
+public final class ChartDataReducer {
+
+    public static final String OTHER = "Other";
+
+    private ChartDataReducer() {
+    }
+
+    /**
+     * Picks at most 'budget' points of an ordered series (first and last are always kept).
+     * X positions are the keys when they are all numbers (years), otherwise the point index.
+     */
+    public static Map<String, Integer> largestTriangleThreeBuckets(Map<String, Integer> series, int budget) {
+        int n = series.size();
+        if (n <= budget) {
+            return series;
+        }
+        if (budget < 3) {
+            return firstAndLast(series, budget);
+        }
+
+        List<String> keys = new ArrayList<>(series.keySet());
+        double[] x = xPositions(keys);
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = series.get(keys.get(i));
+        }
+
+        Map<String, Integer> sampled = new LinkedHashMap<>();
+        sampled.put(keys.get(0), series.get(keys.get(0)));
+
+        // The points between first and last are split into budget - 2 buckets; from each bucket we keep
+        // the point that makes the largest triangle with the previous kept point and the next bucket's average
+        double bucketSize = (double) (n - 2) / (budget - 2);
+        int previous = 0;
+        for (int bucket = 0; bucket < budget - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            averageX /= nextCount;
+            averageY /= nextCount;
+            if (nextEnd <= nextStart) {
+                averageX = x[n - 1];
+                averageY = y[n - 1];
+            }
+
+            double largestArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[previous] - averageX) * (y[i] - y[previous])
+                        - (x[previous] - x[i]) * (averageY - y[previous]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = i;
+                }
+            }
+            sampled.put(keys.get(chosen), series.get(keys.get(chosen)));
+            previous = chosen;
+        }
+
+        sampled.put(keys.get(n - 1), series.get(keys.get(n - 1)));
+        return sampled;
+    }
+
+    /**
+     * Keeps the 'budget - 1' largest entries (largest first) and sums the rest into "Other".
+     * Data that already fits is returned unchanged.
+     */
+    public static Map<String, Integer> bucketOther(Map<String, Integer> data, int budget) {
+        if (data.size() <= budget || budget < 2) {
+            return data;
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(data.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+        Map<String, Integer> reduced = new LinkedHashMap<>();
+        long other = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<String, Integer> entry = entries.get(i);
+            if (i < budget - 1 && !entry.getKey().equals(OTHER)) {
+                reduced.put(entry.getKey(), entry.getValue());
+            } else {
+                other += entry.getValue();
+            }
+        }
+        reduced.put(OTHER, (int) Math.min(Integer.MAX_VALUE, other));
+        return reduced;
+    }
+
+    // Numeric keys (years) give real spacing; anything else is spaced evenly
+    private static double[] xPositions(List<String> keys) {
+        double[] x = new double[keys.size()];
+        try {
+            for (int i = 0; i < x.length; i++) {
+                x[i] = Double.parseDouble(keys.get(i));
+            }
+        } catch (NumberFormatException e) {
+            for (int i = 0; i < x.length; i++) {
+                x[i] = i;
+            }
+        }
+        return x;
+    }
+
+    private static Map<String, Integer> firstAndLast(Map<String, Integer> series, int budget) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>(series.keySet());
+        if (budget >= 1) {
+            result.put(keys.get(0), series.get(keys.get(0)));
+        }
+        if (budget >= 2) {
+            result.put(keys.get(keys.size() - 1), series.get(keys.get(keys.size() - 1)));
+        }
+        return result;
+    }
+}
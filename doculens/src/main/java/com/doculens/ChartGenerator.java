@@ -2,22 +2,53 @@ package com.doculens;
 import javafx.collections.FXCollections;
 import javafx.scene.Node;
 import javafx.scene.chart.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ChartGenerator {
+    // Point budgets: data beyond these is reduced before it becomes chart nodes (see ChartDataReducer)
+    private static final int MAX_PIE_SLICES = Integer.getInteger("doculens.chart.maxSlices", 12);
+    private static final int MAX_BARS = Integer.getInteger("doculens.chart.maxBars", 30);
+    // The timeline is keyed by year (1900-2099), so it has at most 200 points: under this default
+    // budget it is never thinned, the budget only matters when set lower
+    private static final int MAX_LINE_POINTS = Integer.getInteger("doculens.chart.maxLinePoints", 300);
+
     // Funtion to create a Pie Chart from data
-    public Node createPieChart(Map<String, Integer> data) {
+    public PieChart createPieChart(Map<String, Integer> data) {
+        // Create the Chart (the slices are timed in updatePieChart)
+        PieChart chart = new PieChart();
+        chart.setTitle("Demographic Breakdown");
+
+        // Add Data with Percentage Labels
+        updatePieChart(chart, data);
+
+        // Optional: Show labels on the chart itself, not just the legend
+        chart.setLabelsVisible(true);
+
+        return chart;
+    }
+
+    // Replaces the slices of an existing Pie Chart (used while the analysis is still running)
+    public void updatePieChart(PieChart chart, Map<String, Integer> data) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.CHART_NODES, "pie")) {
+            Map<String, Integer> slices = ChartDataReducer.bucketOther(data, MAX_PIE_SLICES);
+            span.items(slices.size());
+            setPieSlices(chart, slices);
+        }
+    }
+
+    private void setPieSlices(PieChart chart, Map<String, Integer> data) {
         // 1. Calculate the TOTAL sum first (so we can do the math)
         double total = 0;
         for (int value : data.values()) {
             total += value;
         }
 
-        // 2. Create the Chart
-        PieChart chart = new PieChart();
-        chart.setTitle("Demographic Breakdown");
-
-        // 3. Add Data with Percentage Labels
+        // 2. Build the slices with Percentage Labels
+        List<PieChart.Data> slices = new ArrayList<>();
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
             String category = entry.getKey();
             int count = entry.getValue();
@@ -28,41 +59,185 @@ public class ChartGenerator {
             // Create a smart label: "Java (60%)"
             String label = String.format("%s (%.1f%%)", category, percentage);
 
-            // Add to chart
-            chart.getData().add(new PieChart.Data(label, count));
+            slices.add(new PieChart.Data(label, count));
         }
-        
-        // Optional: Show labels on the chart itself, not just the legend
-        chart.setLabelsVisible(true); 
 
-        return chart;
+        // 3. Swap them in all at once
+        chart.setData(FXCollections.observableArrayList(slices));
     }
 
-    public Node createLineChart(Map<String, Integer> data) {
-        CategoryAxis xAxis = new CategoryAxis();
-        NumberAxis yAxis = new NumberAxis();
-        LineChart<String, Number> chart = new LineChart<>(xAxis, yAxis);
-        
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Trend Over Time");
-        data.forEach((key, value) -> series.getData().add(new XYChart.Data<>(key, value)));
-        
-        chart.getData().add(series);
-        chart.setTitle("Timeline Analysis");
-        return chart;
+    public LineChart<String, Number> createLineChart(Map<String, Integer> fullData) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.CHART_NODES, "line")) {
+            Map<String, Integer> data = ChartDataReducer.largestTriangleThreeBuckets(fullData, MAX_LINE_POINTS);
+            span.items(data.size());
+            CategoryAxis xAxis = new CategoryAxis();
+            NumberAxis yAxis = new NumberAxis();
+            LineChart<String, Number> chart = new LineChart<>(xAxis, yAxis);
+
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            series.setName("Trend Over Time");
+            data.forEach((key, value) -> series.getData().add(new XYChart.Data<>(key, value)));
+
+            chart.getData().add(series);
+            chart.setTitle("Timeline Analysis");
+            return chart;
+        }
     }
 
-    public Node createBarChart(Map<String, Integer> data) {
-        CategoryAxis xAxis = new CategoryAxis();
-        NumberAxis yAxis = new NumberAxis();
-        BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
-        
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Frequency");
-        data.forEach((key, value) -> series.getData().add(new XYChart.Data<>(key, value)));
-        
-        chart.getData().add(series);
-        chart.setTitle("Word Frequency");
-        return chart;
+    public BarChart<String, Number> createBarChart(Map<String, Integer> fullData) {
+        return createBarChart(fullData, "Word Frequency", "Frequency");
+    }
+
+    public BarChart<String, Number> createBarChart(Map<String, Integer> fullData, String title, String seriesName) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.CHART_NODES, "bar")) {
+            Map<String, Integer> data = ChartDataReducer.bucketOther(fullData, MAX_BARS);
+            span.items(data.size());
+            CategoryAxis xAxis = new CategoryAxis();
+            NumberAxis yAxis = new NumberAxis();
+            BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
+
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            series.setName(seriesName);
+            data.forEach((key, value) -> series.getData().add(new XYChart.Data<>(key, value)));
+
+            chart.getData().add(series);
+            chart.setTitle(title);
+            return chart;
+        }
+    }
+
+    // One numeric table column as bars, rows in table order (rows past the bar limit are left off, not summed)
+    public BarChart<String, Number> createTableChart(TableSeries table) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.CHART_NODES, "table")) {
+            CategoryAxis xAxis = new CategoryAxis();
+            NumberAxis yAxis = new NumberAxis();
+            BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
+
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            series.setName(table.getName());
+            table.getPoints().entrySet().stream().limit(MAX_BARS)
+                    .forEach(point -> series.getData().add(new XYChart.Data<>(point.getKey(), point.getValue())));
+            span.items(series.getData().size());
+
+            chart.getData().add(series);
+            chart.setTitle(table.toString());
+            return chart;
+        }
+    }
+
+    /**
+     * What one user-defined rule found, as the chart its rule file asked for: vertical bars,
+     * horizontal bars (long entry names stay readable, first entry on top) or a pie of the shares.
+     */
+    public Node createRuleChart(RuleSeries rule) {
+        XYChart<?, ?> bars;
+        switch (rule.getChart()) {
+            case PIE:
+                PieChart pie = new PieChart();
+                pie.setTitle(ruleTitle(rule));
+                pie.setLabelsVisible(true);
+                updateRuleChart(pie, rule);
+                return pie;
+            case HBAR:
+                bars = new BarChart<Number, String>(new NumberAxis(), new CategoryAxis());
+                break;
+            default:
+                bars = new BarChart<String, Number>(new CategoryAxis(), new NumberAxis());
+        }
+        bars.setTitle(ruleTitle(rule));
+        bars.setLegendVisible(false);
+        updateRuleChart(bars, rule);
+        return bars;
+    }
+
+    // Replaces the values of a chart made by createRuleChart for the same rule
+    @SuppressWarnings("unchecked")
+    public void updateRuleChart(Node chart, RuleSeries rule) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.CHART_NODES, "rule")) {
+            boolean pie = rule.getChart() == ExtractionRules.Chart.PIE;
+            Map<String, Double> values = largestEntries(rule.getValues(), pie ? MAX_PIE_SLICES : MAX_BARS, pie);
+            span.items(values.size());
+            switch (rule.getChart()) {
+                case PIE:
+                    double total = values.values().stream().mapToDouble(Double::doubleValue).sum();
+                    List<PieChart.Data> slices = new ArrayList<>();
+                    values.forEach((entry, value) -> slices.add(new PieChart.Data(
+                            String.format("%s (%.1f%%)", entry, value / total * 100), value)));
+                    ((PieChart) chart).setData(FXCollections.observableArrayList(slices));
+                    break;
+                case HBAR:
+                    XYChart<Number, String> horizontal = (XYChart<Number, String>) chart;
+                    horizontal.setAnimated(false);
+                    List<XYChart.Data<Number, String>> rows = new ArrayList<>();
+                    values.forEach((entry, value) -> rows.add(new XYChart.Data<>(value, entry)));
+                    Collections.reverse(rows); // Categories are drawn bottom up
+                    setOnlySeries(horizontal, rows, rule.getName());
+                    break;
+                default:
+                    XYChart<String, Number> vertical = (XYChart<String, Number>) chart;
+                    vertical.setAnimated(false);
+                    List<XYChart.Data<String, Number>> columns = new ArrayList<>();
+                    values.forEach((entry, value) -> columns.add(new XYChart.Data<>(entry, value)));
+                    setOnlySeries(vertical, columns, rule.getName());
+            }
+        }
+    }
+
+    private static <X, Y> void setOnlySeries(XYChart<X, Y> chart, List<XYChart.Data<X, Y>> points, String name) {
+        if (chart.getData().isEmpty()) {
+            XYChart.Series<X, Y> series = new XYChart.Series<>();
+            series.setName(name);
+            chart.getData().add(series);
+        }
+        chart.getData().get(0).getData().setAll(points);
+    }
+
+    private static String ruleTitle(RuleSeries rule) {
+        return rule.getName() + (rule.getKind() == ExtractionRules.Kind.COUNT ? " (occurrences)" : " (totals)");
+    }
+
+    // The 'max' largest entries in their original order; the rest summed into "Other" if asked to
+    private static Map<String, Double> largestEntries(Map<String, Double> values, int max, boolean other) {
+        if (values.size() <= max) {
+            return values;
+        }
+        int keep = Math.max(1, other ? max - 1 : max);
+        List<Double> sorted = new ArrayList<>(values.values());
+        sorted.sort(Collections.reverseOrder());
+        double threshold = sorted.get(keep - 1);
+        Map<String, Double> largest = new LinkedHashMap<>();
+        double rest = 0;
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            if (entry.getValue() >= threshold && largest.size() < keep) {
+                largest.put(entry.getKey(), entry.getValue());
+            } else {
+                rest += entry.getValue();
+            }
+        }
+        if (other) {
+            largest.put("Other", rest);
+        }
+        return largest;
+    }
+
+    public void updateLineChart(LineChart<String, Number> chart, Map<String, Integer> data) {
+        updateSeries(chart, ChartDataReducer.largestTriangleThreeBuckets(data, MAX_LINE_POINTS));
+    }
+
+    public void updateBarChart(BarChart<String, Number> chart, Map<String, Integer> data) {
+        updateSeries(chart, ChartDataReducer.bucketOther(data, MAX_BARS));
+    }
+
+    // Replaces the points of a Line or Bar Chart made by this class (used while the analysis is still running)
+    public void updateSeries(XYChart<String, Number> chart, Map<String, Integer> data) {
+        // Category axes glitch when animated categories change quickly, so live charts don't animate
+        chart.setAnimated(false);
+
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.CHART_NODES, "update")) {
+            span.items(data.size());
+            List<XYChart.Data<String, Number>> points = new ArrayList<>();
+            data.forEach((key, value) -> points.add(new XYChart.Data<>(key, value)));
+            chart.getData().get(0).getData().setAll(points);
+        }
     }
 }
@@ -0,0 +1,98 @@
+package com.doculens;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals over many documents: the "reduce" side of a corpus analysis.
+ *
+ * Each document is folded in as soon as it has been read, so only its totals stay in memory,
+ * never its text. Accumulators filled on different threads are combined with {@link #merge},
+ * in any order: word counts, year values and the user's rule counts and totals are summed, and
+ * each percentage is averaged over the documents that report it. Tables are left out: they belong
+ * to their document. Not thread-safe; give every worker its own.
+ */
+public class CorpusAccumulator {
+
+    private final TextAnalyzer textAnalyzer = new TextAnalyzer();
+
+    private final WordCounts wordCounts = WordCounts.create();
+    private final PhraseCounter phraseCounts = new PhraseCounter();
+    private final ExtractionRules rules = ExtractionRules.configured();
+    private final ExtractionRules.Totals ruleTotals = rules.newTotals();
+    private final Map<String, Total> percentages = new HashMap<>();
+    private final Map<String, Total> yearValues = new HashMap<>();
+    private final List<CorpusResult.DocumentEntry> documents = new ArrayList<>();
+    private int pageCount;
+    private boolean textFound;
+
+    // Folds in one document that has been read to the end
+    public void addDocument(String source, AnalysisAccumulator document) {
+        AnalysisResult result = document.toResult(document.getPagesAdded());
+        documents.add(new CorpusResult.DocumentEntry(source, result, null));
+        pageCount += result.getPageCount();
+        if (!result.isTextFound()) {
+            return;
+        }
+        textFound = true;
+        wordCounts.merge(document.getWordCounts());
+        phraseCounts.merge(document.getPhraseCounts());
+        ruleTotals.merge(document.getRuleTotals());
+        result.getPieData().forEach((key, value) -> add(percentages, key, value, 1));
+        result.getLineData().forEach((key, value) -> add(yearValues, key, value, 1));
+    }
+
+    // Records a document that could not be read, so the breakdown still lists it
+    public void addFailure(String source, String error) {
+        documents.add(new CorpusResult.DocumentEntry(source, null, error));
+    }
+
+    // Folds another accumulator (usually another worker's documents) into this one
+    public void merge(CorpusAccumulator other) {
+        wordCounts.merge(other.wordCounts);
+        phraseCounts.merge(other.phraseCounts);
+        ruleTotals.merge(other.ruleTotals);
+        other.percentages.forEach((key, total) -> add(percentages, key, total.sum, total.documents));
+        other.yearValues.forEach((key, total) -> add(yearValues, key, total.sum, total.documents));
+        documents.addAll(other.documents);
+        pageCount += other.pageCount;
+        textFound |= other.textFound;
+    }
+
+    public int getDocumentCount() {
+        return documents.size();
+    }
+
+    public CorpusResult toResult() {
+        List<CorpusResult.DocumentEntry> sorted = new ArrayList<>(documents);
+        sorted.sort((a, b) -> a.getSource().compareTo(b.getSource()));
+        if (!textFound) {
+            return new CorpusResult(AnalysisResult.noText(pageCount), sorted);
+        }
+
+        Map<String, Integer> pie = new LinkedHashMap<>();
+        percentages.forEach((key, total) -> pie.put(key, (int) Math.round((double) total.sum / total.documents)));
+        Map<String, Integer> line = new TreeMap<>();
+        yearValues.forEach((key, total) -> line.put(key, (int) Math.min(Integer.MAX_VALUE, total.sum)));
+        AnalysisResult combined = new AnalysisResult(pageCount, true, pie, line,
+                textAnalyzer.getTopWords(wordCounts), wordCounts.getMaxError(),
+                phraseCounts.topK(PhraseCounter.configuredTopPhrases()), List.of(), rules.toSeries(ruleTotals));
+        return new CorpusResult(combined, sorted);
+    }
+
+    private static void add(Map<String, Total> map, String key, long sum, int documents) {
+        Total total = map.computeIfAbsent(key, k -> new Total());
+        total.sum += sum;
+        total.documents += documents;
+    }
+
+    // A summed value and how many documents contributed to it
+    private static class Total {
+        long sum;
+        int documents;
+    }
+}
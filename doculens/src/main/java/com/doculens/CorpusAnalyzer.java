@@ -0,0 +1,119 @@
+package com.doculens;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Analyses a set of PDFs as one corpus, map-reduce style.
+ *
+ * Map: a few workers take documents off a shared list one at a time, stream each one page by
+ * page (like the batch mode) and fold its totals into the worker's own {@link CorpusAccumulator}.
+ * Reduce: once every document is done the worker accumulators are merged into one.
+ * Memory grows with the combined vocabulary, not with the number of pages or documents.
+ */
+public class CorpusAnalyzer {
+
+    private final int threads;
+
+    public CorpusAnalyzer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CorpusAnalyzer(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // Every PDF under a folder (and its subfolders), sorted by path
+    public static List<File> findPdfs(File folder) throws IOException {
+        try (Stream<Path> walk = Files.walk(folder.toPath())) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * The name each document is listed under: its path relative to the folder all the files are in
+     * (the chosen folder, or the folder the dropped files have in common), so two report.pdf files
+     * in different subfolders stay apart. Files directly in that folder keep their plain name.
+     */
+    static List<String> sourceNames(List<File> pdfFiles) {
+        Path common = null;
+        for (File pdfFile : pdfFiles) {
+            Path parent = pdfFile.getAbsoluteFile().toPath().normalize().getParent();
+            if (common == null) {
+                common = parent;
+            }
+            while (common != null && parent != null && !parent.startsWith(common)) {
+                common = common.getParent();
+            }
+        }
+        List<String> names = new ArrayList<>(pdfFiles.size());
+        for (File pdfFile : pdfFiles) {
+            Path path = pdfFile.getAbsoluteFile().toPath().normalize();
+            names.add(common != null ? common.relativize(path).toString() : path.toString());
+        }
+        return names;
+    }
+
+    /**
+     * Analyses every file; a document that cannot be read is listed as failed and skipped.
+     * Progress is reported as ANALYZING_PAGES with documents as the unit of work.
+     */
+    public CorpusResult analyze(List<File> pdfFiles, AnalysisListener listener) throws InterruptedException {
+        listener.stageStarted(AnalysisStage.ANALYZING_PAGES);
+        List<String> sources = sourceNames(pdfFiles);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+
+        // --- 1. MAP: each worker fills its own accumulator (no locking between documents) ---
+        int workerCount = Math.min(threads, Math.max(1, pdfFiles.size()));
+        List<CorpusAccumulator> partials = new ArrayList<>();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            CorpusAccumulator partial = new CorpusAccumulator();
+            partials.add(partial);
+            workers.add(CompletableFuture.runAsync(() -> {
+                int index;
+                while (!listener.isCancelled() && (index = next.getAndIncrement()) < pdfFiles.size()) {
+                    File pdfFile = pdfFiles.get(index);
+                    try {
+                        partial.addDocument(sources.get(index), DocumentParser.streamDocument(pdfFile));
+                    } catch (Exception | LinkageError e) {
+                        // One broken PDF must not stop the corpus
+                        partial.addFailure(sources.get(index), e.toString());
+                    }
+                    listener.stageProgress(AnalysisStage.ANALYZING_PAGES, done.incrementAndGet(), pdfFiles.size());
+                }
+            }, BackgroundExecutor::execute));
+        }
+        try {
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Corpus worker failed", e.getCause());
+        }
+        if (listener.isCancelled()) {
+            throw new CancellationException("Corpus analysis cancelled");
+        }
+
+        // --- 2. REDUCE: combine the workers' totals ---
+        CorpusAccumulator corpus = partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            corpus.merge(partials.get(i));
+        }
+        return corpus.toResult();
+    }
+}
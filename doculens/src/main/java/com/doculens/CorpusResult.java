@@ -0,0 +1,81 @@
+package com.doculens;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The output of a corpus analysis: the statistics of all documents together, in the same
+ * shape as a single-document {@link AnalysisResult} (so the charts and exports take it as is),
+ * plus a small per-document breakdown.
+ */
+public class CorpusResult {
+
+    private final AnalysisResult combined;
+    private final List<DocumentEntry> documents;
+
+    public CorpusResult(AnalysisResult combined, List<DocumentEntry> documents) {
+        this.combined = combined;
+        this.documents = Collections.unmodifiableList(documents);
+    }
+
+    // Summed word counts and year values, averaged percentages, total pages
+    public AnalysisResult getCombined() {
+        return combined;
+    }
+
+    // One entry per document, sorted by name
+    public List<DocumentEntry> getDocuments() {
+        return documents;
+    }
+
+    public int getFailedCount() {
+        int failed = 0;
+        for (DocumentEntry document : documents) {
+            if (document.getResult() == null) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    // Document -> page count of every document that was analysed (for the breakdown chart)
+    public Map<String, Integer> getPagesPerDocument() {
+        Map<String, Integer> pages = new LinkedHashMap<>();
+        for (DocumentEntry document : documents) {
+            if (document.getResult() != null) {
+                pages.put(document.getSource(), document.getResult().getPageCount());
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * One document of the corpus: its own (top K) result, or the error that stopped it.
+     */
+    public static class DocumentEntry {
+        private final String source;
+        private final AnalysisResult result;
+        private final String error;
+
+        DocumentEntry(String source, AnalysisResult result, String error) {
+            this.source = source;
+            this.result = result;
+            this.error = error;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        // Null if the document could not be analysed
+        public AnalysisResult getResult() {
+            return result;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
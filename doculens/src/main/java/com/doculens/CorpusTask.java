@@ -0,0 +1,41 @@
+package com.doculens;
+
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Background task that runs a {@link CorpusAnalyzer} off the JavaFX thread, publishing
+ * how many documents are done through the Task's progress/message properties.
+ */
+public class CorpusTask extends Task<CorpusResult> {
+
+    private final List<File> pdfFiles;
+    private final CorpusAnalyzer analyzer = new CorpusAnalyzer();
+
+    public CorpusTask(List<File> pdfFiles) {
+        this.pdfFiles = pdfFiles;
+    }
+
+    @Override
+    protected CorpusResult call() throws Exception {
+        updateMessage("Analyzing " + pdfFiles.size() + " documents...");
+        return analyzer.analyze(pdfFiles, new AnalysisListener() {
+            @Override
+            public void stageStarted(AnalysisStage stage) {
+            }
+
+            @Override
+            public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+                updateProgress(workDone, totalWork);
+                updateMessage(String.format("Analyzing documents (%d of %d)...", workDone, totalWork));
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return CorpusTask.this.isCancelled();
+            }
+        });
+    }
+}
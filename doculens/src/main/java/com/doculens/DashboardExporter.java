@@ -0,0 +1,206 @@
+package com.doculens;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Bounds;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.transform.Transform;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Saves the dashboard as a high-resolution PNG or as a multi-page PDF.
+ *
+ * Snapshots have to be taken on the FX thread, but one snapshot of a tall dashboard at 3x can be
+ * bigger than the GPU's largest texture (and converting it for ImageIO doubles the memory).
+ * So the PNG is taken in tiles of at most {@value #TILE_SIZE} pixels: each band of tiles is
+ * snapshotted on the FX thread, handed to the export task and streamed into {@link PngStreamWriter}
+ * before the next band is taken. Only one band is ever held in memory.
+ *
+ * The PDF puts the dashboard's sections (titles and charts) one after another on A4 pages,
+ * one snapshot at a time.
+ */
+public final class DashboardExporter {
+
+    static final int TILE_SIZE = 2048;
+
+    private static final float PAGE_MARGIN = 36; // Half an inch
+
+    private DashboardExporter() {
+    }
+
+    /**
+     * A task that writes 'node' to 'file' as a PNG, 'scale' times its on-screen size.
+     * Run it with {@link BackgroundExecutor}; the node must stay on screen until it is done.
+     */
+    public static Task<Void> pngTask(Node node, File file, double scale) {
+        return new Task<Void>() {
+            @Override
+            protected Void call() throws Exception {
+                writePng(node, file, scale, this::isCancelled);
+                return null;
+            }
+        };
+    }
+
+    // A task that writes each child of 'container' onto A4 pages of a PDF, rendered at 'scale'
+    public static Task<Void> pdfTask(Parent container, File file, double scale) {
+        return new Task<Void>() {
+            @Override
+            protected Void call() throws Exception {
+                List<Node> sections = onFxThread(() -> new ArrayList<>(container.getChildrenUnmodifiable()));
+                writePdf(sections, file, scale, this::isCancelled);
+                return null;
+            }
+        };
+    }
+
+    private static void writePng(Node node, File file, double scale, Supplier<Boolean> cancelled)
+            throws Exception {
+        // The snapshot transform is applied after the node's own layout offset, so the picture starts here
+        Bounds bounds = onFxThread(node::getBoundsInParent);
+        double originX = bounds.getMinX() * scale;
+        double originY = bounds.getMinY() * scale;
+        int width = (int) Math.ceil(bounds.getWidth() * scale);
+        int height = (int) Math.ceil(bounds.getHeight() * scale);
+
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_PNG, file.getName());
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+             PngStreamWriter png = new PngStreamWriter(out, width, height)) {
+            int bandHeight = Math.min(TILE_SIZE, height);
+            int[] band = new int[width * bandHeight];
+            for (int y = 0; y < height; y += bandHeight) {
+                if (cancelled.get()) {
+                    throw new InterruptedException("Export cancelled");
+                }
+                int rows = Math.min(bandHeight, height - y);
+                for (int x = 0; x < width; x += TILE_SIZE) {
+                    int columns = Math.min(TILE_SIZE, width - x);
+                    Rectangle2D viewport = new Rectangle2D(originX + x, originY + y, columns, rows);
+                    int offset = x;
+                    onFxThread(() -> {
+                        WritableImage tile = node.snapshot(snapshotParameters(scale, viewport), null);
+                        tile.getPixelReader().getPixels(0, 0, columns, rows,
+                                PixelFormat.getIntArgbInstance(), band, offset, width);
+                        return null;
+                    });
+                }
+                png.writeRows(band, 0, width, rows);
+                span.items((long) width * rows);
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(file.toPath()); // Don't leave a truncated picture behind
+            throw e;
+        }
+        System.out.println("Saved " + width + "x" + height + " image to: " + file.getAbsolutePath());
+    }
+
+    private static void writePdf(List<Node> sections, File file, double scale, Supplier<Boolean> cancelled)
+            throws Exception {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_PDF, file.getName());
+             PDDocument document = new PDDocument(PdfMemoryBudget.forLoad(1))) { // Big exports spill to a temp file
+            PDRectangle pageSize = PDRectangle.A4;
+            float contentWidth = pageSize.getWidth() - 2 * PAGE_MARGIN;
+            float contentHeight = pageSize.getHeight() - 2 * PAGE_MARGIN;
+            PDPageContentStream content = null;
+            float cursorY = 0; // Top of the free space on the current page, in PDF points from the bottom
+
+            try {
+                for (Node section : sections) {
+                    if (cancelled.get()) {
+                        throw new InterruptedException("Export cancelled");
+                    }
+                    BufferedImage image = onFxThread(() -> {
+                        if (!section.isVisible()) {
+                            return null;
+                        }
+                        WritableImage snapshot = section.snapshot(snapshotParameters(scale, null), null);
+                        return SwingFXUtils.fromFXImage(snapshot, null);
+                    });
+                    if (image == null || image.getWidth() == 0 || image.getHeight() == 0) {
+                        continue;
+                    }
+
+                    // One on-screen pixel becomes one point, shrunk to fit the page if needed
+                    float width = (float) (image.getWidth() / scale);
+                    float height = (float) (image.getHeight() / scale);
+                    float fit = Math.min(1f, Math.min(contentWidth / width, contentHeight / height));
+                    width *= fit;
+                    height *= fit;
+
+                    if (content == null || cursorY - height < PAGE_MARGIN) {
+                        if (content != null) {
+                            content.close();
+                        }
+                        PDPage page = new PDPage(pageSize);
+                        document.addPage(page);
+                        content = new PDPageContentStream(document, page);
+                        cursorY = pageSize.getHeight() - PAGE_MARGIN;
+                    }
+                    PDImageXObject pdfImage = LosslessFactory.createFromImage(document, image);
+                    content.drawImage(pdfImage, PAGE_MARGIN, cursorY - height, width, height);
+                    cursorY -= height + 12;
+                }
+            } finally {
+                if (content != null) {
+                    content.close();
+                }
+            }
+            if (document.getNumberOfPages() == 0) {
+                document.addPage(new PDPage(pageSize)); // Nothing visible: still write a valid PDF
+            }
+            document.save(file);
+            span.items(document.getNumberOfPages()).bytes(file.length());
+        }
+        System.out.println("Saved PDF to: " + file.getAbsolutePath());
+    }
+
+    private static SnapshotParameters snapshotParameters(double scale, Rectangle2D viewport) {
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setTransform(Transform.scale(scale, scale));
+        parameters.setViewport(viewport);
+        return parameters;
+    }
+
+    // Runs the work on the FX thread and waits for its result
+    private static <T> T onFxThread(Supplier<T> work) throws Exception {
+        if (Platform.isFxApplicationThread()) {
+            return work.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
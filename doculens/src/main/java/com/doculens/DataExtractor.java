@@ -4,15 +4,14 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.TreeMap;
 
-// The Regex Engine
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 public class DataExtractor {
-    // Method to extract data points from text using regex patterns or Regular Expressions
-    private static final Pattern PERCENTAGE_PATTERN = Pattern.compile("(\\d+)%\\s+of\\s+([\\w\\s]+)");
-    // Case insensitive match for years like "in 2020 the value was 500"
-    private static final Pattern YEAR_VALUE_PATTERN = Pattern.compile("(?i)in\\s+(19|20)\\d{2}.*?(\\d+)");
+    // The two constructs we recognise. They used to be two regular expressions, each scanned
+    // over the whole text separately:
+    //   percentage-of: (\d+)%\s+of\s+([\w\s]+)           e.g. "60% of respondents"
+    //   year-value:    (?i)in\s+(19|20)\d{2}.*?(\d+)     e.g. "in 2020 the value was 500"
+    // The year pattern backtracked badly on long lines (every "in 2020" with no number after it
+    // re-read the rest of the line). extractAll() now recognises both with hand-written matchers
+    // in one left-to-right pass, with the same matches the regexes produced, in linear time.
 
     public enum DataType {
         PIE_DATA, LINE_DATA, WORD_COUNT, NONE
@@ -20,30 +19,218 @@ public class DataExtractor {
 
     // functions decide which chart to generate based on extracted data
     public DataType determineBestChartType(String text){
-        if (PERCENTAGE_PATTERN.matcher(text).find()) return DataType.PIE_DATA;
-        if (YEAR_VALUE_PATTERN.matcher(text).find()) return DataType.LINE_DATA;
-        return DataType.WORD_COUNT;
+        return extractAll(text).getBestChartType();
     }
     // Extracting the daya for that type
     public Map<String, Integer> extractPieData(String text) {
-        Map<String, Integer> data = new HashMap<>();
-        Matcher matcher = PERCENTAGE_PATTERN.matcher(text);
-        while (matcher.find()) {
-            data.put(matcher.group(2).trim(), Integer.parseInt(matcher.group(1)));
-        }
-        return data;
+        return extractAll(text).getPieData();
     }
 
     public Map<String, Integer> extractLineData(String text) {
-        Map<String, Integer> data = new TreeMap<>();
-        Matcher matcher = YEAR_VALUE_PATTERN.matcher(text);
-        while (matcher.find()) {
-            // Simplified logic for demo
-            String match = matcher.group(0);
-            String year = match.replaceAll("[^0-9]", "").substring(0, 4); 
-            String val = match.replaceAll("[^0-9]", "").substring(4);
-            data.put(year, Integer.parseInt(val));
-        }
-        return data;
+        return extractAll(text).getLineData();
+    }
+
+    /**
+     * Walks the text once and returns the percentage data, the year/value data and
+     * the chart-type decision together.
+     */
+    public Extraction extractAll(String text) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXTRACT_DATA)) {
+            span.items(text.length());
+            return scan(text);
+        }
+    }
+
+    private Extraction scan(String text) {
+        Extraction result = new Extraction();
+        int n = text.length();
+        int pieResume = 0;  // like Matcher.find(): the next percentage match starts after the last one
+        int yearResume = 0; // same for the year matcher
+        LineLookahead lookahead = new LineLookahead(text);
+
+        for (int i = 0; i < n; i++) {
+            if (i >= pieResume && isDigit(text.charAt(i))) {
+                pieResume = matchPercentage(text, i, result);
+            }
+            if (i >= yearResume && (text.charAt(i) == 'i' || text.charAt(i) == 'I')) {
+                yearResume = matchYearValue(text, i, lookahead, result);
+            }
+        }
+        return result;
+    }
+
+    // Tries "(\d+)%\s+of\s+([\w\s]+)" at a digit; returns where the next attempt may start
+    private int matchPercentage(String text, int start, Extraction result) {
+        int n = text.length();
+        int digitsEnd = skipDigits(text, start);
+        // A shorter digit run inside this one would hit the same non-'%' character, so skip the whole run
+        if (digitsEnd >= n || text.charAt(digitsEnd) != '%') {
+            return digitsEnd;
+        }
+
+        int pos = digitsEnd + 1;
+        int spaceEnd = skipWhitespace(text, pos);
+        if (spaceEnd == pos || !text.startsWith("of", spaceEnd)) {
+            return digitsEnd;
+        }
+        pos = spaceEnd + 2;
+        spaceEnd = skipWhitespace(text, pos);
+        int spaces = spaceEnd - pos;
+        if (spaces == 0) {
+            return digitsEnd;
+        }
+
+        // [\w\s]+ is greedy: it runs to the first character that is neither a word char nor whitespace
+        int categoryStart = spaceEnd;
+        int categoryEnd = spaceEnd;
+        while (categoryEnd < n && (isWordChar(text.charAt(categoryEnd)) || isWhitespace(text.charAt(categoryEnd)))) {
+            categoryEnd++;
+        }
+        if (categoryEnd == categoryStart) {
+            // The regex would give the last whitespace char back to [\w\s]+ (category trims to "")
+            if (spaces < 2) {
+                return digitsEnd;
+            }
+            categoryStart--;
+        }
+
+        Integer value = parseInt(text, start, digitsEnd);
+        if (value != null) {
+            result.pieData.put(text.substring(categoryStart, categoryEnd).trim(), value);
+        }
+        return categoryEnd;
+    }
+
+    // Tries "(?i)in\s+(19|20)\d{2}.*?(\d+)" at an 'i'; returns where the next attempt may start
+    private int matchYearValue(String text, int start, LineLookahead lookahead, Extraction result) {
+        int n = text.length();
+        if (start + 1 >= n || Character.toLowerCase(text.charAt(start + 1)) != 'n') {
+            return start + 1;
+        }
+        int yearStart = skipWhitespace(text, start + 2);
+        if (yearStart == start + 2 || yearStart + 4 > n) {
+            return start + 1;
+        }
+        boolean century = text.startsWith("19", yearStart) || text.startsWith("20", yearStart);
+        if (!century || !isDigit(text.charAt(yearStart + 2)) || !isDigit(text.charAt(yearStart + 3))) {
+            return start + 1;
+        }
+        int yearEnd = yearStart + 4;
+
+        // .*? then \d+ : the first digit after the year on the same line, then all digits after it
+        int valueStart = lookahead.nextDigitOnLine(yearEnd);
+        if (valueStart < 0) {
+            return start + 1;
+        }
+        int valueEnd = skipDigits(text, valueStart);
+
+        Integer value = parseInt(text, valueStart, valueEnd);
+        if (value != null) {
+            result.lineData.put(text.substring(yearStart, yearEnd), value);
+        }
+        return valueEnd;
+    }
+
+    /**
+     * Answers "where is the next digit on this line?" for positions that only move forward,
+     * remembering the last answer, so every character is looked at a constant number of times.
+     */
+    private static class LineLookahead {
+        private final String text;
+        private int scannedFrom = -1;
+        private int scannedTo = -1;   // exclusive end of the region already scanned
+        private int answer = -1;      // digit found at scannedTo - 1, or -1 if the line ended there
+
+        LineLookahead(String text) {
+            this.text = text;
+        }
+
+        int nextDigitOnLine(int from) {
+            if (from >= scannedFrom && from < scannedTo) {
+                // The earlier scan covered this position: same line, same answer
+                return answer;
+            }
+            int pos = from;
+            while (pos < text.length() && !isLineTerminator(text.charAt(pos)) && !isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            scannedFrom = from;
+            if (pos < text.length() && isDigit(text.charAt(pos))) {
+                answer = pos;
+                scannedTo = pos + 1;
+            } else {
+                answer = -1;
+                scannedTo = pos;
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * Everything one pass over the text found.
+     */
+    public static class Extraction {
+        private final Map<String, Integer> pieData = new HashMap<>();
+        private final Map<String, Integer> lineData = new TreeMap<>();
+
+        public Map<String, Integer> getPieData() {
+            return pieData;
+        }
+
+        public Map<String, Integer> getLineData() {
+            return lineData;
+        }
+
+        // Same priority as before: percentages make a pie chart, then trends, then word counts
+        public DataType getBestChartType() {
+            if (!pieData.isEmpty()) return DataType.PIE_DATA;
+            if (!lineData.isEmpty()) return DataType.LINE_DATA;
+            return DataType.WORD_COUNT;
+        }
+    }
+
+    // Parses text[start..end) as an int, or null if it is too big (the regex version threw here)
+    private static Integer parseInt(String text, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                return null;
+            }
+        }
+        return (int) value;
+    }
+
+    private static int skipDigits(String text, int pos) {
+        while (pos < text.length() && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWhitespace(String text, int pos) {
+        while (pos < text.length() && isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // \w in Java regex
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    // \s in Java regex
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // The characters '.' does not match
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 }
@@ -0,0 +1,210 @@
+package com.doculens;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in timing and memory instrumentation for the pipeline stages.
+ *
+ * Every stage wraps its work in a {@link Span}; closing the span adds its duration, the
+ * pages/points/rows and bytes it handled and the change in used heap to the totals for that
+ * stage, and emits a {@link StageEvent} for Java Flight Recorder.
+ * {@link #report()} turns the totals (plus whatever is running right now) into a text table for
+ * the diagnostics panel or the batch log, so "it hung on this file" comes with numbers.
+ */
+public final class Diagnostics {
+
+    public enum Stage {
+        PDF_LOAD("PDF load", "pages"),
+        TEXT_STRIP("Text strip", "pages"),
+        PAGE_FINGERPRINT("Page fingerprint", "pages"),
+        PAGE_UPDATE("Page update re-strip", "pages"),
+        QUICK_LOOK("Quick look sample", "pages"),
+        EXTRACT_DATA("DataExtractor", "chars"),
+        COUNT_WORDS("TextAnalyzer count", "chars"),
+        TOP_WORDS("TextAnalyzer top words", "words"),
+        COUNT_PHRASES("Phrase count", "chars"),
+        EXTRACT_TABLES("Table extraction", "words"),
+        MATCH_RULES("Rule match", "chars"),
+        NLP_LOAD("CoreNLP pipeline load", "pipelines"),
+        LEMMATIZE("CoreNLP lemmatize", "chars"),
+        WARM_UP("Startup warm-up", "runs"),
+        THUMBNAIL("Thumbnail render", "pages"),
+        INDEX_READ("Index read", "pages"),
+        INDEX_WRITE("Index write", "pages"),
+        CHART_NODES("Chart nodes", "points"),
+        EXPORT_CSV("CSV export", "rows"),
+        EXPORT_JSON("JSON export", "rows"),
+        EXPORT_PNG("PNG export", "pixels"),
+        EXPORT_PDF("PDF export", "pages");
+
+        private final String label;
+        private final String unit;
+
+        Stage(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final StageStats[] STATS = new StageStats[Stage.values().length];
+    private static final Set<Span> ACTIVE = ConcurrentHashMap.newKeySet();
+
+    static {
+        for (int i = 0; i < STATS.length; i++) {
+            STATS[i] = new StageStats();
+        }
+    }
+
+    private Diagnostics() {
+    }
+
+    // Starts timing a stage; use with try-with-resources. 'detail' (usually the file name) may be null.
+    public static Span start(Stage stage, String detail) {
+        Span span = new Span(stage, detail);
+        ACTIVE.add(span);
+        return span;
+    }
+
+    public static Span start(Stage stage) {
+        return start(stage, null);
+    }
+
+    // Forgets all totals (spans that are still running will still be counted when they finish)
+    public static void reset() {
+        for (int i = 0; i < STATS.length; i++) {
+            STATS[i] = new StageStats();
+        }
+    }
+
+    /**
+     * The totals per stage as a fixed-width text table, followed by the stages that are
+     * running right now and for how long.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-24s %7s %10s %9s %9s %16s %10s %11s%n",
+                "Stage", "Calls", "Total ms", "Avg ms", "Max ms", "Items", "Data MB", "Heap +/-MB"));
+        for (Stage stage : Stage.values()) {
+            StageStats stats = STATS[stage.ordinal()];
+            long calls = stats.calls.sum();
+            if (calls == 0) {
+                continue;
+            }
+            double totalMs = stats.nanos.sum() / 1e6;
+            sb.append(String.format(Locale.ROOT, "%-24s %7d %10.1f %9.2f %9.1f %16s %10.1f %11.1f%n",
+                    stage.label, calls, totalMs, totalMs / calls, stats.maxNanos.get() / 1e6,
+                    stats.items.sum() + " " + stage.unit, stats.bytes.sum() / 1048576.0,
+                    stats.heapDelta.sum() / 1048576.0));
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        sb.append(String.format(Locale.ROOT, "%nHeap: %.1f MB used of %.1f MB (max %.1f MB)%n",
+                (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0,
+                runtime.totalMemory() / 1048576.0, runtime.maxMemory() / 1048576.0));
+
+        String startup = StartupTimer.report();
+        if (!startup.isEmpty()) {
+            sb.append(startup).append(System.lineSeparator());
+        }
+
+        long now = System.nanoTime();
+        for (Span span : ACTIVE) {
+            sb.append(String.format(Locale.ROOT, "Running: %s%s for %.1f s%n", span.stage.label,
+                    span.detail == null ? "" : " [" + span.detail + "]", (now - span.startNanos) / 1e9));
+        }
+        return sb.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * One timed piece of work. Not thread-safe: a span belongs to the thread that started it.
+     */
+    public static final class Span implements AutoCloseable {
+        private final Stage stage;
+        private final String detail;
+        private final long startNanos;
+        private final long startHeap;
+        private final StageEvent event = new StageEvent();
+        private long items;
+        private long bytes;
+        private long excludedNanos;
+        private boolean closed;
+
+        private Span(Stage stage, String detail) {
+            this.stage = stage;
+            this.detail = detail;
+            this.startHeap = usedHeap();
+            event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        // Pages, chart points, rows... whatever the stage counts in (see Stage.unit)
+        public Span items(long count) {
+            items += count;
+            return this;
+        }
+
+        public Span bytes(long count) {
+            bytes += count;
+            return this;
+        }
+
+        // Time spent inside the span on work that belongs to another stage (e.g. page callbacks)
+        public Span exclude(long nanos) {
+            excludedNanos += nanos;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long nanos = System.nanoTime() - startNanos - excludedNanos;
+            long heapDelta = usedHeap() - startHeap;
+            ACTIVE.remove(this);
+
+            StageStats stats = STATS[stage.ordinal()];
+            stats.calls.increment();
+            stats.nanos.add(nanos);
+            stats.maxNanos.accumulate(nanos);
+            stats.items.add(items);
+            stats.bytes.add(bytes);
+            stats.heapDelta.add(heapDelta);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage.label;
+                event.detail = detail;
+                event.ownTime = nanos;
+                event.items = items;
+                event.bytes = bytes;
+                event.heapDelta = heapDelta;
+                event.commit();
+            }
+        }
+    }
+
+    // Running totals for one stage (updated from many threads)
+    private static final class StageStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder items = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder heapDelta = new LongAdder();
+    }
+}
@@ -0,0 +1,36 @@
+package com.doculens;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs the full analysis pipeline (load, text strip, extractors, word count) on one PDF.
+ * Pages are streamed through the extractors by {@link DocumentParser}, and the parse and the
+ * results are shared through {@link DocumentCache}, so each file is only processed once per session.
+ * Has no JavaFX dependencies, so it can run on any thread; callers watch it through
+ * an {@link AnalysisListener}.
+ */
+public class DocumentAnalyzer {
+
+    public AnalysisResult analyze(File pdfFile, AnalysisListener listener) throws IOException {
+        // --- 1. LOAD THE PDF (or reuse the parse the preview screen already did) ---
+        startStage(AnalysisStage.LOADING_PDF, listener);
+        CachedDocument document = DocumentCache.getInstance().getOrLoad(pdfFile, listener);
+
+        // --- 2. THE RESULTS (computed page by page while loading) ---
+        checkCancelled(listener);
+        return document.getAnalysis();
+    }
+
+    private void startStage(AnalysisStage stage, AnalysisListener listener) {
+        checkCancelled(listener);
+        listener.stageStarted(stage);
+    }
+
+    private void checkCancelled(AnalysisListener listener) {
+        if (listener.isCancelled()) {
+            throw new CancellationException("Analysis cancelled");
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.doculens;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Session-wide cache of parsed PDFs, so the preview thumbnail, the dashboard and the
+ * CSV export all share one parse of the same file.
+ *
+ * Entries are keyed by a SHA-256 hash of the file content (the hash itself is remembered
+ * per path + size + modified time, so unchanged files are not re-hashed), kept in LRU order
+ * and evicted once their estimated size goes over the memory budget.
+ * The budget defaults to 256 MB and can be changed with -Ddoculens.cache.maxMb=...
+ *
+ * Behind the memory cache sits the on-disk {@link AnalysisIndex}: documents analysed in an earlier
+ * session are read back from it instead of being parsed, and every new parse is saved to it.
+ *
+ * The cache also remembers which version of each file it saw last. When a file comes back with new
+ * content (re-exported and dropped again, or changed under watch mode), the new version is built
+ * from the last one page by page ({@link DocumentParser#update}) instead of being parsed from scratch.
+ */
+public class DocumentCache {
+
+    private static final DocumentCache INSTANCE =
+            new DocumentCache(Long.getLong("doculens.cache.maxMb", 256) * 1024 * 1024);
+
+    private static final int MAX_REMEMBERED_HASHES = 256;
+
+    private final long maxBytes;
+    private final AnalysisIndex index;
+    private long usedBytes;
+
+    // accessOrder = true turns the LinkedHashMap into an LRU list (eldest = least recently used)
+    private final LinkedHashMap<String, CachedDocument> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, PendingLoad> loading = new LinkedHashMap<>();
+    private final Map<String, String> hashesByFileStamp = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_REMEMBERED_HASHES;
+        }
+    };
+    private final Map<String, String> latestHashByPath = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_REMEMBERED_HASHES;
+        }
+    };
+
+    DocumentCache(long maxBytes) {
+        this(maxBytes, AnalysisIndex.getInstance());
+    }
+
+    DocumentCache(long maxBytes, AnalysisIndex index) {
+        this.maxBytes = maxBytes;
+        this.index = index;
+    }
+
+    public static DocumentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the parsed document, parsing it only if nobody has done so yet this session.
+     * If another thread is already parsing the same file, joins that parse instead: the
+     * listener is first told the current stage and the latest partial result (so a quick-look
+     * estimate made before it joined is not lost), then gets the rest as it comes.
+     */
+    public CachedDocument getOrLoad(File pdfFile, AnalysisListener listener) throws IOException {
+        String hash = contentHash(pdfFile);
+        PendingLoad pending;
+        boolean owner = false;
+
+        synchronized (this) {
+            CachedDocument cached = entries.get(hash);
+            if (cached != null) {
+                latestHashByPath.put(pdfFile.getAbsolutePath(), hash);
+                return cached;
+            }
+            pending = loading.get(hash);
+            if (pending == null || pending.isCancelled()) {
+                // Nobody is parsing it, or everyone who was has cancelled and the parse is about to
+                // stop: joining would only get us their CancellationException, so start afresh
+                pending = new PendingLoad();
+                loading.put(hash, pending);
+                owner = true;
+            }
+            pending.attach(listener);
+        }
+
+        if (!owner) {
+            try {
+                return await(pending.result, listener);
+            } finally {
+                pending.detach(listener);
+            }
+        }
+
+        try {
+            CachedDocument document = index.load(hash);
+            if (document == null) {
+                // Parsed text may use up to half the budget; the rest is left for other documents
+                DocumentParser parser = new DocumentParser(maxBytes / 2);
+                CachedDocument previous = previousVersion(pdfFile);
+                document = previous != null
+                        ? parser.update(pdfFile, hash, previous, pending)
+                        : parser.parse(pdfFile, hash, pending);
+                CachedDocument parsed = document;
+                BackgroundExecutor.execute(() -> index.save(parsed)); // Don't hold up the charts for the disk
+            }
+            put(document);
+            synchronized (this) {
+                latestHashByPath.put(pdfFile.getAbsolutePath(), hash);
+            }
+            pending.result.complete(document);
+            return document;
+        } catch (IOException | RuntimeException e) {
+            pending.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                loading.remove(hash, pending); // A cancelled parse may already have been replaced
+            }
+        }
+    }
+
+    // The version of this file seen last, if it is still cached and can be updated page by page
+    private synchronized CachedDocument previousVersion(File pdfFile) {
+        String previousHash = latestHashByPath.get(pdfFile.getAbsolutePath());
+        CachedDocument previous = previousHash != null ? entries.get(previousHash) : null;
+        return previous != null && previous.isUpdatable() ? previous : null;
+    }
+
+    // Returns the cached document for this file without parsing it, or null
+    public CachedDocument getIfPresent(File pdfFile) throws IOException {
+        String hash = contentHash(pdfFile);
+        synchronized (this) {
+            return entries.get(hash);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    private synchronized void put(CachedDocument document) {
+        long size = document.estimateSizeBytes();
+        if (size > maxBytes) {
+            return; // Bigger than the whole budget: hand it out but don't keep it
+        }
+        CachedDocument previous = entries.put(document.getContentHash(), document);
+        if (previous != null) {
+            usedBytes -= previous.estimateSizeBytes();
+        }
+        usedBytes += size;
+
+        // Evict least recently used entries until we are back under budget
+        Iterator<CachedDocument> eldest = entries.values().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            CachedDocument evicted = eldest.next();
+            if (evicted == document) {
+                continue;
+            }
+            usedBytes -= evicted.estimateSizeBytes();
+            eldest.remove();
+        }
+    }
+
+    // Waits for another thread's parse, but still gives up promptly when cancelled
+    private CachedDocument await(CompletableFuture<CachedDocument> pending, AnalysisListener listener) throws IOException {
+        while (true) {
+            if (listener.isCancelled()) {
+                throw new CancellationException("Document load cancelled");
+            }
+            try {
+                return pending.get(100, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still parsing, check for cancel and keep waiting
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Document load interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * A parse in progress. Everyone interested in it is attached as a listener: progress and
+     * partial results go to all of them, and the parse only stops once all of them have cancelled
+     * (from then on it takes no new listeners: getOrLoad starts a fresh parse instead).
+     * The latest stage, progress and partial result are remembered for listeners that join late;
+     * the callbacks are synchronized so a joining listener never misses one or gets one twice.
+     */
+    private static class PendingLoad implements AnalysisListener {
+        final CompletableFuture<CachedDocument> result = new CompletableFuture<>();
+        private final List<AnalysisListener> listeners = new CopyOnWriteArrayList<>();
+        private AnalysisStage stage; // Null until the parse starts its first stage
+        private long workDone;
+        private long totalWork;
+        private AnalysisResult partial; // The quick-look estimate or the latest partial of the full pass
+        private volatile boolean cancelled; // Once every listener had cancelled; never goes back
+
+        // Adds a listener and catches it up with what the others have already been told
+        synchronized void attach(AnalysisListener listener) {
+            listeners.add(listener);
+            if (stage != null) {
+                listener.stageStarted(stage);
+                listener.stageProgress(stage, workDone, totalWork);
+            }
+            if (partial != null) {
+                listener.partialResult(partial);
+            }
+        }
+
+        void detach(AnalysisListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public synchronized void stageStarted(AnalysisStage stage) {
+            this.stage = stage;
+            workDone = 0;
+            totalWork = 1;
+            listeners.forEach(listener -> listener.stageStarted(stage));
+        }
+
+        @Override
+        public synchronized void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+            this.workDone = workDone;
+            this.totalWork = totalWork;
+            listeners.forEach(listener -> listener.stageProgress(stage, workDone, totalWork));
+        }
+
+        @Override
+        public synchronized void partialResult(AnalysisResult partial) {
+            this.partial = partial;
+            listeners.forEach(listener -> listener.partialResult(partial));
+        }
+
+        // Sticky, so a parse that has seen its cancel is never handed to a listener that joins later
+        @Override
+        public boolean isCancelled() {
+            if (!cancelled && listeners.stream().allMatch(AnalysisListener::isCancelled)) {
+                cancelled = true;
+            }
+            return cancelled;
+        }
+    }
+
+    // SHA-256 of the file content; remembered per path/size/mtime so it is computed once per version
+    String contentHash(File file) throws IOException {
+        String stamp = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        synchronized (this) {
+            String known = hashesByFileStamp.get(stamp);
+            if (known != null) {
+                return known;
+            }
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        String hash = hex.toString();
+        synchronized (this) {
+            hashesByFileStamp.put(stamp, hash);
+        }
+        return hash;
+    }
+}
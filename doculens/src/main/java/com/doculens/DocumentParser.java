@@ -0,0 +1,280 @@
+package com.doculens;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Parses a PDF in one streaming pass: pages flow through the extractors one at a time
+ * into an {@link AnalysisAccumulator}, so memory does not grow with the page count and
+ * partial results can be shown while the rest of the document is still being read.
+ *
+ * The page texts are kept for reuse only while they fit in the given text budget;
+ * beyond that they are dropped and only the results are kept.
+ *
+ * A new version of a document parsed earlier can be {@link #update updated} instead: only the pages
+ * whose fingerprint changed are stripped again, and the totals are corrected by taking those pages'
+ * old text out and putting the new text in, so the work follows the size of the edit.
+ */
+public class DocumentParser {
+
+    private static final int THUMBNAIL_DPI = 72;
+    private static final long PARTIAL_RESULT_INTERVAL_MS = 250;
+
+    private final long maxRetainedTextBytes;
+
+    public DocumentParser(long maxRetainedTextBytes) {
+        this.maxRetainedTextBytes = maxRetainedTextBytes;
+    }
+
+    public CachedDocument parse(File pdfFile, String contentHash, AnalysisListener listener) throws IOException {
+        int pageCount;
+        BufferedImage thumbnail;
+        AnalysisAccumulator accumulator = null;
+        RetainedText retained;
+        long[] fingerprints;
+        AnalysisListener fullPass = listener;
+
+        try (PDDocument document = load(pdfFile)) {
+            pageCount = document.getNumberOfPages();
+
+            // Render the preview first: it is cheap and the preview screen is waiting for it
+            thumbnail = renderThumbnail(document, pdfFile);
+
+            if (listener.isCancelled()) {
+                throw new CancellationException("Document load cancelled");
+            }
+            // Long document: estimated charts from a sample of pages first, then the exact ones
+            if (QuickLook.shouldUse(pageCount)) {
+                listener.stageStarted(AnalysisStage.QUICK_LOOK);
+                listener.partialResult(QuickLook.estimate(document, pageCount, listener));
+                fullPass = QuickLook.holdingPartialResults(listener);
+            }
+            fullPass.stageStarted(AnalysisStage.ANALYZING_PAGES);
+            fingerprints = PageFingerprints.compute(document); // So the next version can be updated page by page
+            retained = new RetainedText(pageCount, maxRetainedTextBytes);
+            if (!ParallelTextExtractor.shouldUse(pageCount)) {
+                accumulator = analyzeSerially(document, pageCount, retained, fullPass);
+            }
+        }
+
+        if (accumulator == null) {
+            // Big document: split it into page ranges and analyse them on all cores
+            accumulator = new ParallelTextExtractor().analyzePages(pdfFile, pageCount, retained, fullPass);
+        }
+        return new CachedDocument(contentHash, pageCount, retained.getPageTexts(), thumbnail,
+                accumulator.toResult(pageCount), fingerprints, accumulator);
+    }
+
+    /**
+     * Builds a new version of a document from the previous version's page texts and totals,
+     * stripping only the pages that are new or changed. A page that only moved (pages inserted or
+     * deleted before it) is recognised by its fingerprint and its old text reused.
+     * Falls back to a full {@link #parse} if the previous version cannot be updated.
+     */
+    public CachedDocument update(File pdfFile, String contentHash, CachedDocument previous,
+                                 AnalysisListener listener) throws IOException {
+        AnalysisAccumulator totals = previous.takeTotals();
+        if (totals == null) {
+            return parse(pdfFile, contentHash, listener);
+        }
+        List<String> oldTexts = previous.getPageTexts();
+        long[] oldFingerprints = previous.getPageFingerprints();
+
+        try (PDDocument document = load(pdfFile)) {
+            int pageCount = document.getNumberOfPages();
+            BufferedImage thumbnail = renderThumbnail(document, pdfFile);
+            if (listener.isCancelled()) {
+                throw new CancellationException("Document load cancelled");
+            }
+            listener.stageStarted(AnalysisStage.ANALYZING_PAGES);
+            long[] fingerprints = PageFingerprints.compute(document);
+
+            // --- 1. MATCH THE PAGES: unchanged in place, moved (same fingerprint elsewhere), or new ---
+            String[] texts = new String[pageCount];
+            int[] movedFrom = new int[pageCount];
+            boolean[] oldKept = new boolean[oldFingerprints.length];
+            for (int i = 0; i < Math.min(pageCount, oldFingerprints.length); i++) {
+                if (fingerprints[i] == oldFingerprints[i]) {
+                    texts[i] = oldTexts.get(i);
+                    oldKept[i] = true;
+                }
+            }
+            Map<Long, ArrayDeque<Integer>> looseOldPages = new HashMap<>();
+            for (int i = 0; i < oldFingerprints.length; i++) {
+                if (!oldKept[i]) {
+                    looseOldPages.computeIfAbsent(oldFingerprints[i], key -> new ArrayDeque<>()).add(i);
+                }
+            }
+            List<Integer> movedPages = new ArrayList<>();
+            List<Integer> changedPages = new ArrayList<>();
+            boolean[] oldMoved = new boolean[oldFingerprints.length];
+            for (int i = 0; i < pageCount; i++) {
+                if (texts[i] != null) {
+                    continue;
+                }
+                ArrayDeque<Integer> sameContent = looseOldPages.get(fingerprints[i]);
+                if (sameContent != null && !sameContent.isEmpty()) {
+                    int oldIndex = sameContent.poll();
+                    oldMoved[oldIndex] = true;
+                    texts[i] = oldTexts.get(oldIndex);
+                    movedFrom[i] = oldIndex;
+                    movedPages.add(i);
+                } else {
+                    changedPages.add(i);
+                }
+            }
+
+            // --- 2. TAKE THE OLD PAGES OUT: deleted / changed ones fully, moved ones just their values ---
+            Map<Integer, List<TableSeries>> movedTables = new HashMap<>();
+            for (int i = 0; i < oldFingerprints.length; i++) {
+                if (oldMoved[i]) {
+                    totals.removePageValues(i + 1, oldTexts.get(i));
+                    movedTables.put(i, totals.takeTables(i + 1));
+                } else if (!oldKept[i]) {
+                    totals.removePage(i + 1, oldTexts.get(i));
+                }
+            }
+
+            // --- 3. FILE THE MOVED PAGES' VALUES UNDER THEIR NEW NUMBER, STRIP THE CHANGED PAGES ---
+            for (int i : movedPages) {
+                totals.addPageValues(i + 1, texts[i]);
+                totals.putTables(i + 1, movedTables.get(movedFrom[i]));
+            }
+            PageTextStripper stripper = new PageTextStripper(listener, pageCount);
+            stripper.setTableConsumer(totals.tableConsumer());
+            String detail = pdfFile.getName() + ", " + movedPages.size() + " of " + pageCount + " pages moved";
+            try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.PAGE_UPDATE, detail)) {
+                for (int start = 0; start < changedPages.size(); ) {
+                    // One strip per run of consecutive changed pages
+                    int end = start;
+                    while (end + 1 < changedPages.size() && changedPages.get(end + 1) == changedPages.get(end) + 1) {
+                        end++;
+                    }
+                    stripper.setStartPage(changedPages.get(start) + 1);
+                    stripper.setEndPage(changedPages.get(end) + 1);
+                    stripper.streamPages(document, (pageNo, text) -> {
+                        texts[pageNo - 1] = text;
+                        totals.addPage(pageNo, text);
+                    });
+                    start = end + 1;
+                }
+                span.items(changedPages.size());
+            }
+
+            RetainedText retained = new RetainedText(pageCount, maxRetainedTextBytes);
+            for (int i = 0; i < pageCount; i++) {
+                retained.acceptPage(i + 1, texts[i]);
+            }
+            return new CachedDocument(contentHash, pageCount, retained.getPageTexts(), thumbnail,
+                    totals.toResult(pageCount), fingerprints, totals);
+        }
+    }
+
+    // Page 1 at thumbnail size, or null for a document without pages
+    private static BufferedImage renderThumbnail(PDDocument document, File pdfFile) throws IOException {
+        if (document.getNumberOfPages() == 0) {
+            return null;
+        }
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.THUMBNAIL, pdfFile.getName())) {
+            span.items(1);
+            return new PDFRenderer(document).renderImageWithDPI(0, THUMBNAIL_DPI, ImageType.RGB);
+        }
+    }
+
+    // PDDocument.load inside the PDF memory budget, timed as the PDF load stage
+    static PDDocument load(File pdfFile) throws IOException {
+        return load(pdfFile, 1);
+    }
+
+    // Same, for one of several documents read at the same time (they share the memory budget)
+    static PDDocument load(File pdfFile, int concurrentLoads) throws IOException {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.PDF_LOAD, pdfFile.getName())) {
+            span.bytes(pdfFile.length());
+            PDDocument document = PDDocument.load(pdfFile, PdfMemoryBudget.forLoad(concurrentLoads));
+            PdfMemoryBudget.releasePageImages(document);
+            span.items(document.getNumberOfPages());
+            return document;
+        }
+    }
+
+    /**
+     * Reads a whole document in one pass on the calling thread, keeping only the running totals
+     * (no page text, no thumbnail). Used where many documents are analysed at once.
+     */
+    static AnalysisAccumulator streamDocument(File pdfFile) throws IOException {
+        // The batch and corpus runners read one document per core
+        try (PDDocument document = load(pdfFile, Runtime.getRuntime().availableProcessors())) {
+            AnalysisAccumulator accumulator = new AnalysisAccumulator();
+            PageTextStripper stripper = new PageTextStripper(AnalysisListener.NONE, document.getNumberOfPages());
+            stripper.setTableConsumer(accumulator.tableConsumer());
+            stripper.streamPages(document, accumulator::addPage);
+            return accumulator;
+        }
+    }
+
+    private AnalysisAccumulator analyzeSerially(PDDocument document, int pageCount, RetainedText retained,
+                                                AnalysisListener listener) throws IOException {
+        AnalysisAccumulator accumulator = new AnalysisAccumulator();
+        long[] lastPublished = {System.currentTimeMillis()};
+
+        PageTextStripper stripper = new PageTextStripper(listener, pageCount);
+        stripper.setTableConsumer(accumulator.tableConsumer());
+        stripper.streamPages(document, (pageNo, text) -> {
+            accumulator.addPage(pageNo, text);
+            retained.acceptPage(pageNo, text);
+
+            // Publish what we have every so often, so the charts fill in while we read
+            long now = System.currentTimeMillis();
+            if (now - lastPublished[0] >= PARTIAL_RESULT_INTERVAL_MS) {
+                lastPublished[0] = now;
+                listener.partialResult(accumulator.toResult(pageCount));
+            }
+        });
+        return accumulator;
+    }
+
+    // Collects page texts (from any thread) until they no longer fit in the budget
+    private static class RetainedText implements PageConsumer {
+        private final String[] pages;
+        private final long maxBytes;
+        private long bytes;
+        private boolean dropped;
+
+        RetainedText(int pageCount, long maxBytes) {
+            this.pages = new String[pageCount];
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void acceptPage(int pageNo, String text) {
+            if (dropped) {
+                return;
+            }
+            bytes += 2L * text.length();
+            if (bytes > maxBytes) {
+                // Too big to keep: let everything go, the results are all we need
+                dropped = true;
+                Arrays.fill(pages, null);
+                return;
+            }
+            pages[pageNo - 1] = text;
+        }
+
+        // The text of every page, or null if it did not fit in the budget
+        synchronized List<String> getPageTexts() {
+            return dropped ? null : Arrays.asList(pages);
+        }
+    }
+}
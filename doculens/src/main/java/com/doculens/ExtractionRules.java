@@ -0,0 +1,398 @@
+package com.doculens;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * User-defined extraction rules, read from rule files and compiled into one {@link RuleMatcher},
+ * so a page is scanned once however many rules there are. A rule file (*.rules) has one rule per line:
+ *
+ *   count: Risk terms = risk | risks, liability | liabilities, lawsuit | lawsuits
+ *   sum: Freight (tonnes) = tonnes | tons | t
+ *   sum pie: Spending by currency = USD | $ | US$, EUR | €, GBP | £
+ *
+ * A count rule counts how often each term appears. A sum rule adds up the number that stands next
+ * to each term: right before it ("500 tonnes") or right after it ("$1,200", "USD 300"), with
+ * "thousand", "million", "billion" and "bn" scaling it ("$2.5 million"); a term with no number next
+ * to it is not counted. Terms joined by "|" are spellings of one entry, which is named after the
+ * first. The optional word after the kind picks the chart: hbar (horizontal bars, the default for
+ * count), bar (the default for sum) or pie. Lines starting with # are comments.
+ *
+ * Rules come from -Ddoculens.rules=... (a .rules file or a directory of them), by default
+ * ~/.doculens/rules; lines that cannot be read are reported and skipped.
+ */
+public final class ExtractionRules {
+
+    public enum Kind {
+        COUNT, SUM
+    }
+
+    public enum Chart {
+        BAR, HBAR, PIE
+    }
+
+    private static final ExtractionRules NONE = new ExtractionRules(List.of());
+    private static ExtractionRules configured; // Guarded by the class; loaded on first use
+
+    private final List<Rule> rules;
+    private final int[] ruleOfEntry;   // Entry (one comma-separated group of terms) -> its rule
+    private final String[] entryLabel;
+    private final int[] entryOfTerm;   // Term id in the matcher -> its entry
+    private final RuleMatcher matcher; // Null without rules
+    private final int signature;
+
+    private ExtractionRules(List<Rule> rules) {
+        this.rules = rules;
+        List<String> terms = new ArrayList<>();
+        List<Integer> termEntries = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        List<Integer> entryRules = new ArrayList<>();
+        for (int r = 0; r < rules.size(); r++) {
+            Set<String> ruleTerms = new HashSet<>(); // A term listed twice in one rule still counts once
+            for (String[] spellings : rules.get(r).entries) {
+                for (String term : spellings) {
+                    if (ruleTerms.add(RuleMatcher.normalise(term))) {
+                        terms.add(term);
+                        termEntries.add(labels.size());
+                    }
+                }
+                labels.add(spellings[0]);
+                entryRules.add(r);
+            }
+        }
+        this.ruleOfEntry = entryRules.stream().mapToInt(Integer::intValue).toArray();
+        this.entryLabel = labels.toArray(new String[0]);
+        this.entryOfTerm = termEntries.stream().mapToInt(Integer::intValue).toArray();
+        this.matcher = rules.isEmpty() ? null : new RuleMatcher(terms);
+        this.signature = rules.stream().map(Rule::toString).collect(Collectors.toList()).hashCode();
+    }
+
+    // The rules from -Ddoculens.rules (or ~/.doculens/rules), read once and shared by every document
+    public static synchronized ExtractionRules configured() {
+        if (configured == null) {
+            String path = System.getProperty("doculens.rules");
+            configured = path != null ? load(Paths.get(path), true)
+                    : load(Paths.get(System.getProperty("user.home"), ".doculens", "rules"), false);
+            if (!configured.isEmpty()) {
+                System.out.println("Loaded " + configured.rules.size() + " extraction rules with "
+                        + configured.entryOfTerm.length + " terms");
+            }
+        }
+        return configured;
+    }
+
+    // A .rules file, or every .rules file in a directory (in name order)
+    static ExtractionRules load(Path path, boolean mustExist) {
+        List<Path> files;
+        try {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> list = Files.list(path)) {
+                    files = list.filter(file -> file.getFileName().toString().endsWith(".rules"))
+                            .sorted().collect(Collectors.toList());
+                }
+            } else if (Files.exists(path)) {
+                files = List.of(path);
+            } else {
+                if (mustExist) {
+                    System.err.println("Rule file not found, no extraction rules loaded: " + path);
+                }
+                return NONE;
+            }
+        } catch (IOException e) {
+            System.err.println("Rule files could not be listed, no extraction rules loaded: " + e);
+            return NONE;
+        }
+        List<Rule> rules = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                parseInto(Files.readAllLines(file, StandardCharsets.UTF_8), file.getFileName().toString(), rules);
+            } catch (IOException e) {
+                System.err.println("Rule file " + file + " skipped: " + e);
+            }
+        }
+        return new ExtractionRules(rules);
+    }
+
+    // Rules given as lines in the rule file format ('source' names them in error messages)
+    public static ExtractionRules parse(List<String> lines, String source) {
+        List<Rule> rules = new ArrayList<>();
+        parseInto(lines, source, rules);
+        return new ExtractionRules(rules);
+    }
+
+    private static void parseInto(List<String> lines, String source, List<Rule> rules) {
+        Set<String> names = new HashSet<>();
+        rules.forEach(rule -> names.add(rule.name));
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                Rule rule = parseRule(line);
+                if (!names.add(rule.name)) {
+                    throw new IllegalArgumentException("a rule named \"" + rule.name + "\" already exists");
+                }
+                rules.add(rule);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Rule file " + source + " line " + (n + 1) + " skipped: " + e.getMessage());
+            }
+        }
+    }
+
+    // "kind [chart]: name = term | spelling, term, ..."
+    private static Rule parseRule(String line) {
+        int colon = line.indexOf(':');
+        int equals = line.indexOf('=', colon + 1);
+        if (colon < 0 || equals < 0) {
+            throw new IllegalArgumentException("expected \"count: Name = term, term\" or \"sum: Name = term, term\"");
+        }
+        String[] head = line.substring(0, colon).trim().toUpperCase(Locale.ROOT).split("\\s+");
+        Kind kind;
+        Chart chart;
+        try {
+            kind = Kind.valueOf(head[0]);
+            chart = head.length > 1 ? Chart.valueOf(head[1]) : (kind == Kind.COUNT ? Chart.HBAR : Chart.BAR);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown kind or chart in \"" + line.substring(0, colon).trim()
+                    + "\" (kinds: count, sum; charts: bar, hbar, pie)");
+        }
+        if (head.length > 2) {
+            throw new IllegalArgumentException("too many words before the colon");
+        }
+        String name = line.substring(colon + 1, equals).trim();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("the rule has no name");
+        }
+        List<String[]> entries = new ArrayList<>();
+        for (String group : line.substring(equals + 1).split(",")) {
+            String[] spellings = Arrays.stream(group.split("\\|")).map(String::trim)
+                    .filter(term -> !RuleMatcher.normalise(term).isEmpty()).toArray(String[]::new);
+            if (spellings.length > 0) {
+                entries.add(spellings);
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("the rule has no terms");
+        }
+        return new Rule(name, kind, chart, entries);
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    // Changes whenever the rules do, so stored results from other rules are not reused
+    public int getSignature() {
+        return signature;
+    }
+
+    public Totals newTotals() {
+        return new Totals(entryLabel.length);
+    }
+
+    /**
+     * Adds what the rules find in the text to the totals, or takes it out again with sign -1
+     * (for a page that was removed; the text must be the one it was added with).
+     */
+    public void scan(String text, Totals totals, int sign) {
+        if (matcher == null) {
+            return;
+        }
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.MATCH_RULES)) {
+            span.items(text.length());
+            matcher.findAll(text, (termId, start, end) -> {
+                int entry = entryOfTerm[termId];
+                if (rules.get(ruleOfEntry[entry]).kind == Kind.COUNT) {
+                    totals.hits[entry] += sign;
+                    return;
+                }
+                double value = numberNextTo(text, start, end);
+                if (!Double.isNaN(value)) {
+                    totals.hits[entry] += sign;
+                    // Back to exactly 0 when the last number is taken out, rather than a rounding residue
+                    totals.sums[entry] = totals.hits[entry] == 0 ? 0 : totals.sums[entry] + sign * value;
+                }
+            });
+        }
+    }
+
+    // One series per rule that found anything, entries in the order of the rule file
+    public List<RuleSeries> toSeries(Totals totals) {
+        List<RuleSeries> series = new ArrayList<>();
+        int entry = 0;
+        for (Rule rule : rules) {
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (int i = 0; i < rule.entries.size(); i++, entry++) {
+                if (totals.hits[entry] > 0) {
+                    values.put(entryLabel[entry], rule.kind == Kind.COUNT ? totals.hits[entry] : totals.sums[entry]);
+                }
+            }
+            if (!values.isEmpty()) {
+                series.add(new RuleSeries(rule.name, rule.kind, rule.chart, values));
+            }
+        }
+        return series;
+    }
+
+    // --- Numbers next to a term ---
+
+    private static final String[] SCALE_WORDS = {"thousand", "million", "billion", "bn"};
+    private static final double[] SCALES = {1e3, 1e6, 1e9, 1e9};
+
+    /**
+     * The number next to the term, or NaN. Symbols ("$", "€") are written before the number, so the
+     * number after them is tried first; words ("tonnes", "USD") usually follow it, so for them the
+     * number before comes first and the one after ("USD 300") second.
+     */
+    static double numberNextTo(String text, int start, int end) {
+        if (!Character.isLetterOrDigit(text.charAt(start))) {
+            double after = numberAfter(text, end);
+            return !Double.isNaN(after) ? after : numberBefore(text, start);
+        }
+        double before = numberBefore(text, start);
+        return !Double.isNaN(before) ? before : numberAfter(text, end);
+    }
+
+    private static double numberAfter(String text, int pos) {
+        int from = skipSpace(text, pos, 1);
+        int i = from;
+        if (i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == '−')) {
+            i++;
+        }
+        if (i >= text.length() || !Character.isDigit(text.charAt(i))) {
+            return Double.NaN;
+        }
+        i = numberEnd(text, i);
+        double value = TableExtractor.parseNumber(text.substring(from, i));
+        int scale = scaleWordAt(text, i);
+        if (scale >= 0) {
+            return value * SCALES[scale];
+        }
+        return i < text.length() && Character.isLetter(text.charAt(i)) ? Double.NaN : value; // "5th", "3D"
+    }
+
+    private static double numberBefore(String text, int pos) {
+        int end = skipSpace(text, pos, -1);
+        // "2.5 million tonnes": the scale word sits between the number and the term
+        double scale = 1;
+        for (int s = 0; s < SCALE_WORDS.length; s++) {
+            int wordStart = end - SCALE_WORDS[s].length();
+            if (wordStart > 0 && !Character.isLetter(text.charAt(wordStart - 1))
+                    && text.regionMatches(true, wordStart, SCALE_WORDS[s], 0, SCALE_WORDS[s].length())) {
+                scale = SCALES[s];
+                end = skipSpace(text, wordStart, -1);
+                break;
+            }
+        }
+        int from = end;
+        while (from > 0 && (Character.isDigit(text.charAt(from - 1)) || text.charAt(from - 1) == ','
+                || text.charAt(from - 1) == '.')) {
+            from--;
+        }
+        while (from < end && !Character.isDigit(text.charAt(from))) {
+            from++; // A separator is not the start of the number
+        }
+        if (from == end || (from > 0 && Character.isLetter(text.charAt(from - 1)))) {
+            return Double.NaN;
+        }
+        if (from > 0 && (text.charAt(from - 1) == '-' || text.charAt(from - 1) == '−')) {
+            from--;
+        }
+        return TableExtractor.parseNumber(text.substring(from, end)) * scale;
+    }
+
+    // Where a number starting at 'from' ends: digits with thousands separators and a decimal point
+    private static int numberEnd(String text, int from) {
+        int i = from;
+        while (i < text.length() && (Character.isDigit(text.charAt(i))
+                || ((text.charAt(i) == ',' || text.charAt(i) == '.') && i + 1 < text.length()
+                && Character.isDigit(text.charAt(i + 1))))) {
+            i++;
+        }
+        return i;
+    }
+
+    // The index of the scale word right at 'pos' (after at most one space), or -1
+    private static int scaleWordAt(String text, int pos) {
+        int i = skipSpace(text, pos, 1);
+        for (int s = 0; s < SCALE_WORDS.length; s++) {
+            int wordEnd = i + SCALE_WORDS[s].length();
+            if (text.regionMatches(true, i, SCALE_WORDS[s], 0, SCALE_WORDS[s].length())
+                    && (wordEnd >= text.length() || !Character.isLetter(text.charAt(wordEnd)))) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    // Steps over at most 'max' whitespace characters forwards from pos, or backwards (max < 0) to before pos
+    private static int skipSpace(String text, int pos, int max) {
+        if (max > 0) {
+            return pos < text.length() && isSpace(text.charAt(pos)) ? pos + 1 : pos;
+        }
+        return pos > 0 && isSpace(text.charAt(pos - 1)) ? pos - 1 : pos;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\u00A0' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * What the rules have found so far: per entry, how often it matched and (for sum rules) the
+     * total of its numbers. Totals of the same rules can be merged in any order.
+     */
+    public static final class Totals {
+        private final long[] hits;
+        private final double[] sums;
+
+        private Totals(int entries) {
+            this.hits = new long[entries];
+            this.sums = new double[entries];
+        }
+
+        public void merge(Totals other) {
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] += other.hits[i];
+                sums[i] = hits[i] == 0 ? 0 : sums[i] + other.sums[i];
+            }
+        }
+
+        int size() {
+            return hits.length;
+        }
+    }
+
+    private static final class Rule {
+        final String name;
+        final Kind kind;
+        final Chart chart;
+        final List<String[]> entries;
+
+        Rule(String name, Kind kind, Chart chart, List<String[]> entries) {
+            this.name = name;
+            this.kind = kind;
+            this.chart = chart;
+            this.entries = entries;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + chart + ": " + name + " = " + entries.stream()
+                    .map(spellings -> String.join(" | ", spellings)).collect(Collectors.joining(", "));
+        }
+    }
+}
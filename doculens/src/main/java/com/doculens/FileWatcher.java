@@ -0,0 +1,95 @@
+package com.doculens;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls back when one file changes on disk. Watches the file's folder (Java can only watch folders),
+ * so it also notices files that are replaced rather than rewritten, as many exporters do.
+ *
+ * Exporters write in several steps, so the callback only runs once the file has been quiet for
+ * {@link #SETTLE_MS} ms, and only if its size or modified time really changed.
+ * Runs on its own daemon thread; {@link #close()} stops it.
+ */
+public class FileWatcher implements Closeable {
+
+    static final long SETTLE_MS = 500;
+
+    private final File file;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private String lastStamp;
+
+    private FileWatcher(File file, Runnable onChange) throws IOException {
+        this.file = file.getAbsoluteFile();
+        this.onChange = onChange;
+        this.lastStamp = stamp();
+        Path folder = this.file.getParentFile().toPath();
+        this.watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    // Starts watching; onChange runs on the watcher thread
+    public static FileWatcher watch(File file, Runnable onChange) throws IOException {
+        FileWatcher watcher = new FileWatcher(file, onChange);
+        Thread thread = new Thread(watcher::run, "doculens-watch-" + file.getName());
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!isAboutOurFile(watchService.take())) {
+                    continue;
+                }
+                // Wait until the writer is done: no more events for our file for a while
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    isAboutOurFile(next);
+                }
+                String stamp = stamp();
+                if (file.isFile() && !stamp.equals(lastStamp)) {
+                    lastStamp = stamp;
+                    onChange.run();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // close() was called: stop watching
+        }
+    }
+
+    // Drains the key's events and re-arms it; true if any of them was for our file
+    private boolean isAboutOurFile(WatchKey key) {
+        boolean ours = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getName().equals(String.valueOf(event.context()))) {
+                ours = true; // On overflow events were lost, so check the file anyway
+            }
+        }
+        key.reset();
+        return ours;
+    }
+
+    private String stamp() {
+        return file.length() + "|" + file.lastModified();
+    }
+}
@@ -0,0 +1,157 @@
+package com.doculens;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Optional keyword mode backed by Stanford CoreNLP: pages are tokenised, POS-tagged and lemmatised,
+ * and only the lemmas of nouns are counted, so "report", "reports" and "Reports" become one keyword
+ * and verbs like "reported" drop out. Turned on with -Ddoculens.keywords=lemma (default: surface,
+ * the plain word counter).
+ *
+ * The pipeline takes seconds and hundreds of MB to load, so it is built once, in the background,
+ * as soon as {@link #warmUp()} is called (at startup when the mode is on), and that one instance is
+ * shared by every page and every document afterwards; CoreNLP's annotate is thread-safe, so the
+ * parallel page ranges all use it at once. A page that is reached before loading has finished waits
+ * for it on its own worker thread, never on the FX thread.
+ *
+ * The noun lemmas of recently seen pages are kept in a small LRU cache keyed by a hash of the page
+ * text (-Ddoculens.nlp.cacheEntries, default 2048), so re-analysing a document, or boilerplate pages
+ * repeated across a corpus, skips the tagger. If the models are not on the classpath (they are a
+ * separate 470 MB artifact, see the "nlp" Maven profile) the mode logs once and falls back to
+ * surface counting.
+ */
+public final class KeywordLemmatizer {
+
+    private static final KeywordLemmatizer INSTANCE = new KeywordLemmatizer();
+
+    private final int cacheEntries = Math.max(0, Integer.getInteger("doculens.nlp.cacheEntries", 2048));
+    private final Map<String, String[]> nounCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+            return size() > cacheEntries;
+        }
+    };
+    private CompletableFuture<StanfordCoreNLP> pipeline; // Guarded by this; null until warmUp
+
+    private KeywordLemmatizer() {
+    }
+
+    public static KeywordLemmatizer getInstance() {
+        return INSTANCE;
+    }
+
+    // -Ddoculens.keywords=lemma turns the mode on
+    public static boolean isEnabled() {
+        return "lemma".equalsIgnoreCase(System.getProperty("doculens.keywords", "surface"));
+    }
+
+    // Starts loading the pipeline on a background thread (only once); returns immediately
+    public synchronized void warmUp() {
+        if (pipeline != null) {
+            return;
+        }
+        pipeline = new CompletableFuture<>();
+        BackgroundExecutor.execute(() -> {
+            try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.NLP_LOAD)) {
+                pipeline.complete(createPipeline());
+                span.items(1);
+            } catch (RuntimeException | LinkageError e) {
+                System.err.println("CoreNLP models could not be loaded, counting plain words instead: " + e);
+                pipeline.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Adds the noun lemmas of one page to the counter, with the same filters as the plain counter
+     * (letters only, lower case, more than 2 letters, no stop words). Waits for the pipeline if it
+     * is still loading; returns false if it could not be loaded, so the caller counts the page itself.
+     */
+    public boolean countNouns(String pageText, TextAnalyzer textAnalyzer, WordCounts counter) {
+        String key = cacheKey(pageText);
+        String[] nouns = cached(key);
+        if (nouns == null) {
+            StanfordCoreNLP nlp = awaitPipeline();
+            if (nlp == null) {
+                return false;
+            }
+            nouns = nounLemmas(nlp, pageText);
+            cache(key, nouns);
+        }
+        for (String noun : nouns) {
+            textAnalyzer.countToken(noun, counter);
+        }
+        return true;
+    }
+
+    private StanfordCoreNLP awaitPipeline() {
+        CompletableFuture<StanfordCoreNLP> loading;
+        synchronized (this) {
+            warmUp();
+            loading = pipeline;
+        }
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    private static StanfordCoreNLP createPipeline() {
+        Properties props = new Properties();
+        props.setProperty("annotators", "tokenize,ssplit,pos,lemma");
+        props.setProperty("tokenize.options", "untokenizable=noneDelete"); // PDF text has stray glyphs
+        // Every line is its own sentence: PDF text is full of headings and table rows without
+        // punctuation, which would otherwise run into one sentence too long for the tagger
+        props.setProperty("ssplit.newlineIsSentenceBreak", "always");
+        return new StanfordCoreNLP(props);
+    }
+
+    private static String[] nounLemmas(StanfordCoreNLP nlp, String pageText) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.LEMMATIZE)) {
+            span.items(pageText.length());
+            CoreDocument document = new CoreDocument(pageText);
+            nlp.annotate(document);
+            List<String> nouns = new ArrayList<>();
+            for (CoreLabel token : document.tokens()) {
+                String tag = token.tag();
+                if (tag != null && tag.startsWith("NN")) { // NN, NNS, NNP, NNPS
+                    nouns.add(token.lemma() != null ? token.lemma() : token.word());
+                }
+            }
+            return nouns.toArray(new String[0]);
+        }
+    }
+
+    private synchronized String[] cached(String key) {
+        return nounCache.get(key);
+    }
+
+    private synchronized void cache(String key, String[] nouns) {
+        nounCache.put(key, nouns);
+    }
+
+    // SHA-256 of the page text, so the cache does not keep the pages themselves alive
+    private static String cacheKey(String pageText) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(pageText.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
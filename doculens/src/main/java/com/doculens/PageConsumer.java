@@ -0,0 +1,11 @@
+package com.doculens;
+
+/**
+ * Receives the text of a PDF one page at a time, in page order.
+ */
+@FunctionalInterface
+public interface PageConsumer {
+
+    // pageNo is 1-based, like PDFTextStripper's page numbers
+    void acceptPage(int pageNo, String text);
+}
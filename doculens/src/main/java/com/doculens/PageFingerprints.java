@@ -0,0 +1,117 @@
+package com.doculens;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * One 64-bit fingerprint per page, taken from what decides the page's text: its content stream,
+ * the content streams of the forms (XObjects) it draws, and the names of the fonts it uses.
+ * Two versions of a page with the same fingerprint give the same text, so an updated document
+ * only has to have its changed pages stripped again (see {@link DocumentParser#update}).
+ *
+ * Much cheaper than stripping: streams are only decompressed and hashed, never interpreted, and
+ * images and embedded font programs are not read at all.
+ */
+public final class PageFingerprints {
+
+    private static final int MAX_FORM_DEPTH = 4; // Forms drawing forms; real documents rarely go past 2
+
+    private PageFingerprints() {
+    }
+
+    // The fingerprint of every page, index 0 = page 1
+    public static long[] compute(PDDocument document) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[16 * 1024];
+        long[] fingerprints = new long[document.getNumberOfPages()];
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.PAGE_FINGERPRINT)) {
+            int index = 0;
+            for (PDPage page : document.getPages()) {
+                if (page.hasContents()) {
+                    try (InputStream contents = page.getContents()) {
+                        update(digest, contents, buffer);
+                    }
+                }
+                // getResources() also finds resources inherited from the page tree, as the stripper does
+                PDResources resources = page.getResources();
+                hashResources(resources != null ? resources.getCOSObject() : null, digest, buffer, 0);
+                fingerprints[index++] = toLong(digest.digest()); // digest() also resets it for the next page
+            }
+            span.items(fingerprints.length);
+        }
+        return fingerprints;
+    }
+
+    private static void hashResources(COSDictionary resources, MessageDigest digest, byte[] buffer, int depth)
+            throws IOException {
+        if (resources == null || depth > MAX_FORM_DEPTH) {
+            return;
+        }
+        // Fonts: the resource name and the font's name (a re-subset font gets a new "ABCDEF+" prefix)
+        COSDictionary fonts = resources.getCOSDictionary(COSName.FONT);
+        if (fonts != null) {
+            for (COSName key : fonts.keySet()) {
+                update(digest, key.getName());
+                COSBase font = fonts.getDictionaryObject(key);
+                if (font instanceof COSDictionary) {
+                    update(digest, String.valueOf(((COSDictionary) font).getNameAsString(COSName.BASE_FONT)));
+                }
+            }
+        }
+        // Forms can hold text too; images cannot, so they are skipped without being decoded
+        COSDictionary xObjects = resources.getCOSDictionary(COSName.XOBJECT);
+        if (xObjects != null) {
+            for (COSName key : xObjects.keySet()) {
+                COSBase xObject = xObjects.getDictionaryObject(key);
+                if (xObject instanceof COSStream
+                        && COSName.FORM.equals(((COSStream) xObject).getCOSName(COSName.SUBTYPE))) {
+                    COSStream form = (COSStream) xObject;
+                    update(digest, key.getName());
+                    try (InputStream in = form.createInputStream()) {
+                        update(digest, in, buffer);
+                    }
+                    hashResources(form.getCOSDictionary(COSName.RESOURCES), digest, buffer, depth + 1);
+                }
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, InputStream in, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0); // So "ab" + "c" and "a" + "bc" hash differently
+    }
+
+    private static long toLong(byte[] hash) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (hash[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.doculens;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A PDFTextStripper that reports progress after every page and stops
+ * as soon as the analysis is cancelled, instead of running to the end of the document.
+ * It hands out the text one page at a time (see {@link #streamPages}), so the
+ * whole document never has to sit in memory as one String.
+ * With a {@link #setTableConsumer table consumer} it also passes every word's position to a
+ * {@link TableExtractor} and hands out the tables of each page.
+ */
+public class PageTextStripper extends PDFTextStripper {
+
+    private final AnalysisListener listener;
+    private final int totalPages;
+    private TableExtractor tables;
+    private TableConsumer tableConsumer;
+
+    // Only set while streamPages() is running
+    private StringWriter pageBuffer;
+    private PageConsumer consumer;
+    private int firstPage;
+    private int lastPage;
+    private int nextPageNo;
+    private Diagnostics.Span stripSpan;
+
+    // The last finished page is held back until we know no more text belongs to it
+    private int heldPageNo;
+    private String heldText;
+
+    public PageTextStripper(AnalysisListener listener, int totalPages) throws IOException {
+        this.listener = listener;
+        this.totalPages = totalPages;
+    }
+
+    // Also find the tables on every page and pass them to the consumer (null = don't look for tables)
+    public void setTableConsumer(TableConsumer tableConsumer) {
+        this.tableConsumer = tableConsumer;
+        this.tables = tableConsumer != null ? new TableExtractor() : null;
+    }
+
+    // Extracts the text of every page in the current start/end range, one String per page
+    public List<String> getPageTexts(PDDocument document) throws IOException {
+        List<String> pageTexts = new ArrayList<>();
+        streamPages(document, (pageNo, text) -> pageTexts.add(text));
+        return pageTexts;
+    }
+
+    /**
+     * Passes the text of every page in the current start/end range to the consumer, in page order.
+     * Only one page of text is buffered at a time.
+     */
+    public void streamPages(PDDocument document, PageConsumer pageConsumer) throws IOException {
+        firstPage = Math.max(1, getStartPage());
+        lastPage = Math.min(getEndPage(), document.getNumberOfPages());
+        Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.TEXT_STRIP);
+        stripSpan = span;
+        // The consumer's time (extractors, word count) is recorded under its own stages, not the strip
+        consumer = (pageNo, text) -> {
+            long start = System.nanoTime();
+            pageConsumer.acceptPage(pageNo, text);
+            span.exclude(System.nanoTime() - start).items(1).bytes(2L * text.length());
+        };
+        pageBuffer = new StringWriter();
+        nextPageNo = firstPage;
+        heldText = null;
+        try {
+            writeText(document, pageBuffer);
+            if (heldText != null) {
+                // Anything written after the last page (document end markers) belongs to it
+                heldText += pageBuffer.toString();
+                releaseHeldPage();
+            }
+            emitEmptyPagesUpTo(lastPage);
+        } finally {
+            span.close();
+            stripSpan = null;
+            pageBuffer = null;
+            consumer = null;
+            heldText = null;
+        }
+    }
+
+    @Override
+    public void processPage(PDPage page) throws IOException {
+        if (pageBuffer != null) {
+            // PDFBox skips pages without a content stream, so fill those in to keep one entry per page
+            emitEmptyPagesUpTo(getCurrentPageNo() - 1);
+        }
+        super.processPage(page);
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        if (listener.isCancelled()) {
+            throw new CancellationException("Text extraction cancelled");
+        }
+        super.startPage(page);
+    }
+
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+        super.writeString(text, textPositions);
+        if (tables != null && !textPositions.isEmpty()) {
+            // Called once per word: record its box in reading direction (y grows down the page)
+            TextPosition first = textPositions.get(0);
+            TextPosition last = textPositions.get(textPositions.size() - 1);
+            // The font size, not the glyph height: PDFBox's heights are well under the line spacing
+            float height = 0;
+            for (TextPosition position : textPositions) {
+                float size = position.getFontSizeInPt();
+                height = Math.max(height, size > 0 ? size : position.getHeightDir());
+            }
+            tables.addWord(text, first.getXDirAdj(), last.getXDirAdj() + last.getWidthDirAdj(),
+                    first.getYDirAdj(), height);
+        }
+    }
+
+    @Override
+    protected void endPage(PDPage page) throws IOException {
+        super.endPage(page);
+        if (tables != null) {
+            long start = System.nanoTime();
+            List<TableSeries> found = tables.finishPage(getCurrentPageNo());
+            if (!found.isEmpty()) {
+                tableConsumer.acceptTables(getCurrentPageNo(), found);
+            }
+            if (stripSpan != null) {
+                stripSpan.exclude(System.nanoTime() - start); // Timed as its own stage
+            }
+        }
+        if (pageBuffer != null) {
+            releaseHeldPage();
+            // Cut the page out of the buffer, so the buffer never holds more than one page
+            heldPageNo = getCurrentPageNo();
+            heldText = pageBuffer.toString();
+            pageBuffer.getBuffer().setLength(0);
+            nextPageNo = heldPageNo + 1;
+        }
+        listener.stageProgress(AnalysisStage.ANALYZING_PAGES, getCurrentPageNo(), totalPages);
+    }
+
+    private void releaseHeldPage() {
+        if (heldText != null) {
+            String text = heldText;
+            heldText = null;
+            consumer.acceptPage(heldPageNo, text);
+        }
+    }
+
+    private void emitEmptyPagesUpTo(int pageNo) {
+        int upTo = Math.min(pageNo, lastPage);
+        if (nextPageNo > upTo) {
+            return;
+        }
+        releaseHeldPage();
+        while (nextPageNo <= upTo) {
+            consumer.acceptPage(nextPageNo, "");
+            listener.stageProgress(AnalysisStage.ANALYZING_PAGES, nextPageNo, totalPages);
+            nextPageNo++;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.doculens;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+
+/**
+ * One page in the preview's thumbnail strip. The ListView only creates cells for the pages
+ * on screen and reuses them while scrolling, so each cell asks the renderer for its current
+ * page (showing a grey placeholder until it arrives) and cancels the request when it is reused.
+ */
+public class PageThumbnailCell extends ListCell<Integer> {
+
+    static final int THUMBNAIL_HEIGHT = 110;
+
+    private static final Image PLACEHOLDER = createPlaceholder(85, THUMBNAIL_HEIGHT);
+
+    private final ThumbnailRenderer renderer;
+    private final ImageView imageView = new ImageView();
+    private final Label pageLabel = new Label();
+    private final VBox box = new VBox(4, imageView, pageLabel);
+    private ThumbnailRenderer.Request pending;
+
+    public PageThumbnailCell(ThumbnailRenderer renderer) {
+        this.renderer = renderer;
+        imageView.setFitHeight(THUMBNAIL_HEIGHT);
+        imageView.setPreserveRatio(true);
+        pageLabel.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 11px;");
+        box.setAlignment(Pos.CENTER);
+    }
+
+    @Override
+    protected void updateItem(Integer pageIndex, boolean empty) {
+        super.updateItem(pageIndex, empty);
+        if (pending != null) {
+            pending.cancel(); // This cell now shows another page (or none)
+            pending = null;
+        }
+        if (empty || pageIndex == null) {
+            setGraphic(null);
+            return;
+        }
+
+        imageView.setImage(PLACEHOLDER);
+        pageLabel.setText(String.valueOf(pageIndex + 1));
+        setGraphic(box);
+        pending = renderer.request(pageIndex, THUMBNAIL_HEIGHT, imageView::setImage);
+    }
+
+    private static Image createPlaceholder(int width, int height) {
+        WritableImage image = new WritableImage(width, height);
+        PixelWriter writer = image.getPixelWriter();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                writer.setColor(x, y, Color.web("#ecf0f1"));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,153 @@
+package com.doculens;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts and analyses the text of a PDF on all cores by splitting it into page ranges.
+ * PDFBox is not thread-safe, so every range opens its own PDDocument and feeds its own
+ * {@link AnalysisAccumulator}; finished ranges are merged into the document total as they
+ * complete, and each merge is published as a partial result.
+ *
+ * The mode is picked with -Ddoculens.extraction=auto|serial|parallel (default auto:
+ * parallel for documents with at least {@link #MIN_PARALLEL_PAGES} pages on a multi-core machine).
+ * With CoreNLP keywords on, tagging a page costs far more than loading the document again, so
+ * much smaller documents and ranges are split up too.
+ */
+public class ParallelTextExtractor {
+
+    static final int MIN_PARALLEL_PAGES = 32;
+    static final int MIN_PARALLEL_PAGES_NLP = 4;
+
+    // Each range pays for its own PDDocument.load, so don't make ranges too small
+    private static final int MIN_PAGES_PER_RANGE = 8;
+    private static final int MIN_PAGES_PER_RANGE_NLP = 2;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // Decides whether a document of this size should be extracted in parallel
+    public static boolean shouldUse(int pageCount) {
+        String mode = System.getProperty("doculens.extraction", "auto");
+        if ("parallel".equalsIgnoreCase(mode)) {
+            return pageCount > 1;
+        }
+        if ("serial".equalsIgnoreCase(mode)) {
+            return false;
+        }
+        int minPages = KeywordLemmatizer.isEnabled() ? MIN_PARALLEL_PAGES_NLP : MIN_PARALLEL_PAGES;
+        return pageCount >= minPages && POOL.getParallelism() > 1;
+    }
+
+    /**
+     * Analyses every page of the document and returns the merged totals.
+     * Each page's text is also handed to textSink, which must be thread-safe.
+     */
+    public AnalysisAccumulator analyzePages(File pdfFile, int pageCount, PageConsumer textSink,
+                                            AnalysisListener listener) throws IOException {
+        // Aim for a couple of ranges per core, so a slow range doesn't leave the other cores idle
+        int minRange = KeywordLemmatizer.isEnabled() ? MIN_PAGES_PER_RANGE_NLP : MIN_PAGES_PER_RANGE;
+        int rangeSize = Math.max(minRange, (int) Math.ceil(pageCount / (POOL.getParallelism() * 2.0)));
+        Job job = new Job(pdfFile, pageCount, rangeSize, textSink, listener);
+        try {
+            POOL.invoke(new RangeTask(job, 1, pageCount));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return job.total;
+    }
+
+    // State shared by all the ranges of one document
+    private static class Job {
+        final File pdfFile;
+        final int totalPages;
+        final int rangeSize;
+        final PageConsumer textSink;
+        final AnalysisListener listener;
+        final AnalysisAccumulator total = new AnalysisAccumulator();
+        final AtomicInteger pagesDone = new AtomicInteger();
+
+        Job(File pdfFile, int totalPages, int rangeSize, PageConsumer textSink, AnalysisListener listener) {
+            this.pdfFile = pdfFile;
+            this.totalPages = totalPages;
+            this.rangeSize = rangeSize;
+            this.textSink = textSink;
+            this.listener = listener;
+        }
+
+        // Called by a worker when its range is finished; the partial is published under the same
+        // lock, so two ranges finishing together can't publish out of order (an older one last)
+        void mergeRange(AnalysisAccumulator range) {
+            synchronized (total) {
+                total.merge(range);
+                listener.partialResult(total.toResult(totalPages));
+            }
+        }
+    }
+
+    // Analyses pages [firstPage, lastPage] (1-based, inclusive), splitting the range in half until it is small enough
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Job job;
+        private final int firstPage;
+        private final int lastPage;
+
+        RangeTask(Job job, int firstPage, int lastPage) {
+            this.job = job;
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastPage - firstPage + 1 <= job.rangeSize) {
+                analyzeRange();
+                return;
+            }
+            int middle = (firstPage + lastPage) / 2;
+            invokeAll(new RangeTask(job, firstPage, middle), new RangeTask(job, middle + 1, lastPage));
+        }
+
+        private void analyzeRange() {
+            AnalysisAccumulator range = new AnalysisAccumulator();
+
+            // An independent document handle per worker, because PDFBox objects are not thread-safe
+            try (PDDocument document = DocumentParser.load(job.pdfFile, POOL.getParallelism())) {
+                PageTextStripper stripper = new PageTextStripper(new SharedProgress(), job.totalPages);
+                stripper.setTableConsumer(range.tableConsumer());
+                stripper.setStartPage(firstPage);
+                stripper.setEndPage(lastPage);
+                stripper.streamPages(document, (pageNo, text) -> {
+                    range.addPage(pageNo, text);
+                    job.textSink.acceptPage(pageNo, text);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            job.mergeRange(range);
+        }
+
+        // Every worker reports into one shared page counter, so progress covers the whole document
+        private class SharedProgress implements AnalysisListener {
+            @Override
+            public void stageStarted(AnalysisStage stage) {
+            }
+
+            @Override
+            public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+                job.listener.stageProgress(stage, job.pagesDone.incrementAndGet(), job.totalPages);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return job.listener.isCancelled();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.doculens;
+
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * How much heap PDFBox may use for the streams of the documents it loads.
+ *
+ * PDFBox reads the PDF file itself on demand, but by default copies every stream it parses (page
+ * contents, fonts and, in scanned archives, one big image per page) into heap buffers, so a 2 GB
+ * scan needs 2 GB of heap. With a budget, streams beyond it go to a temp file instead, so documents
+ * far bigger than the heap can be analysed; small documents never reach the budget and stay as fast.
+ *
+ * The budget is shared by all documents being read at once and is set with
+ * -Ddoculens.pdf.maxMemoryMb=... (default: an eighth of the max heap; -1 = no limit, everything on
+ * the heap as before). Temp files go to -Ddoculens.pdf.tempDir (default: java.io.tmpdir) and are
+ * deleted when the document is closed.
+ */
+public final class PdfMemoryBudget {
+
+    private static final long MIN_BYTES = 16L * 1024 * 1024;
+    private static final long MAX_DEFAULT_BYTES = 512L * 1024 * 1024;
+
+    private PdfMemoryBudget() {
+    }
+
+    // The whole budget in bytes, or -1 for no limit
+    public static long configuredBytes() {
+        long megabytes = Long.getLong("doculens.pdf.maxMemoryMb", 0);
+        if (megabytes < 0) {
+            return -1;
+        }
+        if (megabytes > 0) {
+            return megabytes * 1024 * 1024;
+        }
+        return Math.max(MIN_BYTES, Math.min(MAX_DEFAULT_BYTES, Runtime.getRuntime().maxMemory() / 8));
+    }
+
+    // The setting for one of 'concurrentLoads' documents open at the same time (each gets an equal share)
+    public static MemoryUsageSetting forLoad(int concurrentLoads) {
+        long budget = configuredBytes();
+        if (budget < 0) {
+            return MemoryUsageSetting.setupMainMemoryOnly();
+        }
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(Math.max(1, budget / Math.max(1, concurrentLoads)));
+        String tempDir = System.getProperty("doculens.pdf.tempDir");
+        return tempDir != null ? setting.setTempDir(new File(tempDir)) : setting;
+    }
+
+    /**
+     * Stops PDFBox from holding on to the images of pages it has finished with: by default every
+     * image XObject drawn stays in the document's resource cache until the document is closed.
+     * Fonts and the like are still cached, since most pages share them.
+     */
+    public static void releasePageImages(PDDocument document) {
+        document.setResourceCache(new DefaultResourceCache() {
+            @Override
+            public void put(COSObject indirect, PDXObject xobject) throws IOException {
+                if (!(xobject instanceof PDImageXObject)) {
+                    super.put(indirect, xobject);
+                }
+            }
+        });
+    }
+}
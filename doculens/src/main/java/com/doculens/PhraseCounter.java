@@ -0,0 +1,376 @@
+package com.doculens;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts two- and three-word phrases ("net revenue", "customer satisfaction score").
+ *
+ * Words go through the same clean-up as {@link TextAnalyzer#countWords} (letters only, lower case)
+ * and are interned in a {@link TokenVocabulary}; a phrase is then just its word ids packed into one
+ * long (21 bits each), counted in an open-addressing long -> int table. So counting allocates
+ * nothing per phrase: Strings are only built for the top K at the end.
+ *
+ * Phrase rules: a phrase never spans punctuation that ends a clause (. , ; : ! ? brackets, quotes),
+ * a line break or a number, and it may not start or end with a stop word or a word of 2 letters or
+ * fewer; the middle word of a three-word phrase may be one ("cost of goods"). Pages are counted
+ * separately, so phrases never span pages either. Not thread-safe; merge counters instead.
+ */
+public class PhraseCounter {
+
+    private static final float MAX_LOAD = 0.6f;
+    private static final long ID_MASK = TokenVocabulary.MAX_ID;
+
+    private final TokenVocabulary vocabulary = new TokenVocabulary();
+    private final BitSet weakIds = new BitSet(); // Stop words and short words: never first or last in a phrase
+
+    private long[] keys; // Packed word ids, 0 when empty (ids start at 1, so no phrase packs to 0)
+    private int[] counts;
+    private int size;
+    private int resizeAt;
+
+    public PhraseCounter() {
+        allocate(1024);
+    }
+
+    // How many phrases the dashboard shows; change with -Ddoculens.topPhrases=... (0 turns phrases off)
+    public static int configuredTopPhrases() {
+        return Math.max(0, Integer.getInteger("doculens.topPhrases", 10));
+    }
+
+    // Adds every phrase of the text (usually one page)
+    public void addText(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.COUNT_PHRASES)) {
+            span.items(text.length());
+            scanPhrases(text);
+        }
+    }
+
+    private void scanPhrases(String text) {
+        char[] word = new char[32]; // Reused for every word, grown if a word is longer
+        int length = 0;
+        boolean inToken = false; // Saw something other than whitespace since the last word ended
+        int previous = 0; // Id of the word before, 0 after a break
+        int beforePrevious = 0;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : '\n';
+
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                inToken = true;
+                continue;
+            }
+            boolean breaksPhrase = isPhraseBreak(c);
+            if (!breaksPhrase && !TextAnalyzer.isWhitespace(c)) {
+                inToken = true; // Digits, hyphens, apostrophes: dropped, like the word counter does
+                continue;
+            }
+            if (inToken) {
+                // End of a token: a word, or a number / symbol run (which breaks the phrase)
+                int id = length > 0 ? internWord(word, length) : 0;
+                if (id == 0) {
+                    previous = 0;
+                    beforePrevious = 0;
+                } else {
+                    if (previous != 0 && !weakIds.get(previous) && !weakIds.get(id)) {
+                        increment(((long) previous << TokenVocabulary.ID_BITS) | id);
+                    }
+                    if (beforePrevious != 0 && !weakIds.get(beforePrevious) && !weakIds.get(id)) {
+                        increment(((long) beforePrevious << (2 * TokenVocabulary.ID_BITS))
+                                | ((long) previous << TokenVocabulary.ID_BITS) | id);
+                    }
+                    beforePrevious = previous;
+                    previous = id;
+                }
+                length = 0;
+                inToken = false;
+            }
+            if (breaksPhrase) {
+                previous = 0;
+                beforePrevious = 0;
+            }
+        }
+    }
+
+    // Folds another counter in (its ids mean nothing here, so phrases are re-interned by their words)
+    public void merge(PhraseCounter other) {
+        merge(other, 1);
+    }
+
+    // Takes another counter's phrases out again, e.g. the old text of a page that changed
+    public void subtract(PhraseCounter other) {
+        merge(other, -1);
+    }
+
+    private void merge(PhraseCounter other, int sign) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            long key = other.keys[slot];
+            if (key == 0 || other.counts[slot] <= 0) {
+                continue;
+            }
+            long mapped = 0;
+            for (int shift = 2 * TokenVocabulary.ID_BITS; shift >= 0; shift -= TokenVocabulary.ID_BITS) {
+                int otherId = (int) ((key >>> shift) & ID_MASK);
+                if (otherId == 0) {
+                    continue; // A two-word phrase has no third id
+                }
+                int id = vocabulary.intern(other.vocabulary.word(otherId));
+                if (id == 0) {
+                    mapped = 0; // Our vocabulary is full: drop the phrase
+                    break;
+                }
+                weakIds.set(id, other.weakIds.get(otherId));
+                mapped = (mapped << TokenVocabulary.ID_BITS) | id;
+            }
+            if (mapped != 0) {
+                add(mapped, sign * other.counts[slot]);
+            }
+        }
+    }
+
+    // Number of distinct phrases
+    public int size() {
+        return size;
+    }
+
+    // The count of a phrase given as words separated by single spaces, 0 if it was never seen
+    public int get(String phrase) {
+        long key = 0;
+        for (String part : phrase.split(" ")) {
+            int id = vocabulary.find(part);
+            if (id == 0) {
+                return 0;
+            }
+            key = (key << TokenVocabulary.ID_BITS) | id;
+        }
+        int slot = find(key);
+        return slot >= 0 ? counts[slot] : 0;
+    }
+
+    /**
+     * The k most frequent phrases, most frequent first (ties in alphabetical order), as
+     * "word word" or "word word word". A two-word phrase is left out when a three-word phrase
+     * in the list contains it and is just as frequent: it only ever occurred as part of that one.
+     */
+    public Map<String, Integer> topK(int k) {
+        int candidates = Math.min(size, Math.max(0, k) * 3); // Room for the phrases that get left out
+        int[] heap = new int[candidates];
+        int heapSize = 0;
+        for (int slot = 0; slot < keys.length && heap.length > 0; slot++) {
+            if (keys[slot] == 0 || counts[slot] <= 0) {
+                continue; // Empty, or taken out again by subtract()
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            } else if (ranksHigher(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        // Drain the heap weakest-first, filling the array from the back
+        int[] ordered = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ordered[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (int slot : ordered) {
+            if (top.size() == k) {
+                break;
+            }
+            if (!isTrigram(keys[slot]) && partOfEqualTrigram(slot, ordered)) {
+                continue;
+            }
+            top.put(phrase(keys[slot]), counts[slot]);
+        }
+        return top;
+    }
+
+    private int internWord(char[] word, int length) {
+        int before = vocabulary.size();
+        int id = vocabulary.intern(word, length);
+        if (id > before) { // A new word: decide once whether it can start or end a phrase
+            weakIds.set(id, length <= 2 || TextAnalyzer.isStopWord(word, length));
+        }
+        return id;
+    }
+
+    // Characters that end a clause, so no phrase runs across them
+    private static boolean isPhraseBreak(char c) {
+        switch (c) {
+            case '.': case ',': case ';': case ':': case '!': case '?':
+            case '(': case ')': case '[': case ']': case '{': case '}':
+            case '"': case '\n': case '\r': case '\f':
+            case '\u201C': case '\u201D': case '\u2022': // Curly quotes and bullets, common in PDFs
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTrigram(long key) {
+        return (key >>> (2 * TokenVocabulary.ID_BITS)) != 0;
+    }
+
+    // True if a three-word phrase among the candidates starts or ends with this two-word one and has the same count
+    private boolean partOfEqualTrigram(int bigramSlot, int[] candidates) {
+        long bigram = keys[bigramSlot];
+        for (int slot : candidates) {
+            long key = keys[slot];
+            if (isTrigram(key) && counts[slot] == counts[bigramSlot]
+                    && (key >>> TokenVocabulary.ID_BITS == bigram
+                        || (key & ((1L << (2 * TokenVocabulary.ID_BITS)) - 1)) == bigram)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String phrase(long key) {
+        StringBuilder sb = new StringBuilder();
+        for (int shift = 2 * TokenVocabulary.ID_BITS; shift >= 0; shift -= TokenVocabulary.ID_BITS) {
+            int id = (int) ((key >>> shift) & ID_MASK);
+            if (id != 0) {
+                sb.append(sb.length() == 0 ? "" : " ").append(vocabulary.word(id));
+            }
+        }
+        return sb.toString();
+    }
+
+    // Higher count wins; on a tie the alphabetically earlier phrase wins
+    private boolean ranksHigher(int slotA, int slotB) {
+        if (counts[slotA] != counts[slotB]) {
+            return counts[slotA] > counts[slotB];
+        }
+        return comparePhrases(keys[slotA], keys[slotB]) < 0;
+    }
+
+    // Word by word, which is the same order as comparing the "word word" Strings (space sorts before letters)
+    private int comparePhrases(long a, long b) {
+        int wordsA = isTrigram(a) ? 3 : 2;
+        int wordsB = isTrigram(b) ? 3 : 2;
+        for (int i = 0; i < Math.min(wordsA, wordsB); i++) {
+            int idA = idAt(a, wordsA, i);
+            int idB = idAt(b, wordsB, i);
+            if (idA != idB) {
+                return vocabulary.word(idA).compareTo(vocabulary.word(idB));
+            }
+        }
+        return wordsA - wordsB;
+    }
+
+    // The id of word 'index' (0-based) of a phrase of 'words' words
+    private static int idAt(long key, int words, int index) {
+        return (int) ((key >>> ((words - 1 - index) * TokenVocabulary.ID_BITS)) & ID_MASK);
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksHigher(heap[parent], heap[index])) {
+                return;
+            }
+            int tmp = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = tmp;
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        int index = 0;
+        while (true) {
+            int weakest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && ranksHigher(heap[weakest], heap[left])) {
+                weakest = left;
+            }
+            if (right < heapSize && ranksHigher(heap[weakest], heap[right])) {
+                weakest = right;
+            }
+            if (weakest == index) {
+                return;
+            }
+            int tmp = heap[weakest];
+            heap[weakest] = heap[index];
+            heap[index] = tmp;
+            index = weakest;
+        }
+    }
+
+    private void increment(long key) {
+        add(key, 1);
+    }
+
+    private void add(long key, int count) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        if (++size >= resizeAt) {
+            resize();
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(keys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    // Spreads the packed ids over the table (consecutive ids would otherwise cluster)
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,142 @@
+package com.doculens;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A PNG encoder that takes the image a band of rows at a time, so a very large picture can be
+ * written without ever being held in memory as a whole (ImageIO needs the complete image up front).
+ *
+ * Writes 8-bit RGB (the dashboard is opaque) with the "Sub" filter on every row, which compresses
+ * the flat chart backgrounds well. Rows must arrive top to bottom, exactly 'height' of them.
+ */
+public class PngStreamWriter implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater = new Deflater(6);
+    private final DeflaterOutputStream pixels;
+    private final byte[] row;
+    private int rowsWritten;
+
+    public PngStreamWriter(OutputStream target, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Empty image: " + width + "x" + height);
+        }
+        this.out = new DataOutputStream(target);
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + 3 * width];
+
+        out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // Bits per channel
+        headerData.writeByte(2); // Colour type: RGB
+        headerData.writeByte(0); // Deflate
+        headerData.writeByte(0); // Adaptive filtering
+        headerData.writeByte(0); // Not interlaced
+        writeChunk("IHDR", header.toByteArray(), header.size());
+
+        this.pixels = new DeflaterOutputStream(new IdatOutputStream(), deflater, IDAT_CHUNK_SIZE);
+    }
+
+    /**
+     * Appends 'rows' rows of ARGB pixels (alpha is dropped), read from 'argb' starting at 'offset'
+     * with 'scanlineStride' ints between rows.
+     */
+    public void writeRows(int[] argb, int offset, int scanlineStride, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("More rows than the " + height + " declared");
+        }
+        for (int r = 0; r < rows; r++) {
+            int start = offset + r * scanlineStride;
+            row[0] = 1; // Sub filter: each byte minus the same channel of the pixel to its left
+            int previous = 0;
+            for (int x = 0, i = 1; x < width; x++, i += 3) {
+                int pixel = argb[start + x];
+                row[i] = (byte) ((pixel >> 16) - (previous >> 16));
+                row[i + 1] = (byte) ((pixel >> 8) - (previous >> 8));
+                row[i + 2] = (byte) (pixel - previous);
+                previous = pixel;
+            }
+            pixels.write(row);
+        }
+        rowsWritten += rows;
+    }
+
+    // Finishes the compressed data and writes the end marker; the target stream is closed too
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten != height) {
+                throw new IOException("Only " + rowsWritten + " of " + height + " rows were written");
+            }
+            pixels.close(); // Flushes the last IDAT chunk
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    // Cuts the compressed stream into IDAT chunks as it comes out of the deflater
+    private class IdatOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                int n = Math.min(length, buffer.length - size);
+                System.arraycopy(data, offset, buffer, size, n);
+                size += n;
+                offset += n;
+                length -= n;
+                if (size == buffer.length) {
+                    flushChunk();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (size > 0) {
+                writeChunk("IDAT", buffer, size);
+                size = 0;
+            }
+        }
+    }
+}
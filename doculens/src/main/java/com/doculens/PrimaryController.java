@@ -2,19 +2,19 @@ package com.doculens;
 
 import java.io.IOException;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
-import javafx.scene.Parent;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button; 
 import javafx.scene.input.DragEvent;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.HBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -28,26 +28,40 @@ public class PrimaryController {
     @FXML
     private Button statusLabel; // Your "Attach PDF" Button
     
+    @FXML
+    private Button dashboardButton; // "Back to last dashboard", only shown once there is one
+
+    // The drop target's look from the FXML, restored after a drag (the screen is reused, not rebuilt)
+    private String idleText;
+    private String idleStyle;
+
+    @FXML
+    private void initialize() {
+        idleText = statusLabel.getText();
+        idleStyle = statusLabel.getStyle();
+        dashboardButton.visibleProperty().bind(ScreenNavigator.dashboardAvailableProperty());
+        dashboardButton.managedProperty().bind(ScreenNavigator.dashboardAvailableProperty());
+    }
+
     // --- 1. THE HELPER METHOD (The Key Fix) ---
     // This handles switching screens AND passing the file data
-    private void goToSecondaryScreen(File pdfFile, Node sourceNode) {
-        try {
-            // A. Load the FXML manually so we can get the controller
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("secondary.fxml"));
-            Parent root = loader.load();
-
-            // B. Get the Controller and PASS THE FILE
-            SecondaryController secondaryController = loader.getController();
-            secondaryController.setPdfFile(pdfFile);
+    private void goToSecondaryScreen(File pdfFile) {
+        // The preview screen is loaded once and reused: it just gets the new file
+        SecondaryController secondaryController = ScreenNavigator.show(ScreenNavigator.Screen.SECONDARY);
+        secondaryController.setPdfFile(pdfFile);
+    }
 
-            // C. Switch the Scene
-            Stage stage = (Stage) sourceNode.getScene().getWindow();
-            stage.getScene().setRoot(root);
+    // Corpus mode: straight to the dashboard with all the files (there is no single preview to show)
+    private void goToCorpusDashboard(List<File> pdfFiles) {
+        VisualizationController visController = ScreenNavigator.controller(ScreenNavigator.Screen.VISUALIZATION);
+        visController.startCorpusAnalysis(pdfFiles);
+        ScreenNavigator.show(ScreenNavigator.Screen.VISUALIZATION);
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("Error loading secondary.fxml: " + e.getMessage());
-        }
+    // The last dashboard is still alive (charts, results, even a running analysis): just show it again
+    @FXML
+    void openLastDashboard(ActionEvent event) {
+        ScreenNavigator.show(ScreenNavigator.Screen.VISUALIZATION);
     }
 
     // --- 2. UPDATED OPEN PDF (Now switches screen) ---
@@ -67,24 +81,51 @@ public class PrimaryController {
             System.out.println("File selected: " + this.storedPdfFile.getAbsolutePath());
             
             // CALL THE HELPER to switch scenes
-            goToSecondaryScreen(this.storedPdfFile, (Node)event.getSource());
+            goToSecondaryScreen(this.storedPdfFile);
         } else {
             System.out.println("File selection cancelled.");
         }
     }
 
+    // --- 2b. OPEN A WHOLE FOLDER (Corpus mode) ---
+    @FXML
+    void openFolder(ActionEvent event) {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Open Folder of PDFs");
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+        File folder = directoryChooser.showDialog(stage);
+        if (folder == null) {
+            System.out.println("Folder selection cancelled.");
+            return;
+        }
+        try {
+            List<File> pdfFiles = CorpusAnalyzer.findPdfs(folder);
+            if (pdfFiles.isEmpty()) {
+                showErrorDialog();
+                return;
+            }
+            System.out.println("Folder selected: " + folder.getAbsolutePath() + " (" + pdfFiles.size() + " PDFs)");
+            goToCorpusDashboard(pdfFiles);
+        } catch (IOException e) {
+            System.out.println("Could not read folder " + folder + ": " + e.getMessage());
+        }
+    }
+
     // --- 3. UPDATED DRAG DROPPED (Now passes data correctly) ---
     @FXML
     void handleDragDropped(DragEvent event) {
         List<File> files = event.getDragboard().getFiles();
-        if (files != null && !files.isEmpty()) {
+        List<File> corpus = droppedCorpus(files);
+        if (corpus != null) {
+            // Several PDFs (or a folder) dropped at once: analyse them together
+            goToCorpusDashboard(corpus);
+        } else if (files != null && !files.isEmpty()) {
             File droppedFile = files.get(0);
             if (droppedFile.getName().toLowerCase().endsWith(".pdf")) {
                 this.storedPdfFile = droppedFile; // Store it
                 
                 // CALL THE HELPER to switch scenes
-                // We use 'statusLabel' (your button) as the source node to find the Stage
-                goToSecondaryScreen(droppedFile, statusLabel); 
+                goToSecondaryScreen(droppedFile);
             } else {
                 showErrorDialog();
             }
@@ -93,6 +134,23 @@ public class PrimaryController {
         event.consume();
     }
 
+    // The PDFs of a multi-file or folder drop, or null when a single file was dropped
+    private List<File> droppedCorpus(List<File> files) {
+        if (files == null || (files.size() < 2 && !(files.size() == 1 && files.get(0).isDirectory()))) {
+            return null;
+        }
+        List<File> pdfFiles = new ArrayList<>();
+        for (File file : files) {
+            try {
+                pdfFiles.addAll(file.isDirectory() ? CorpusAnalyzer.findPdfs(file)
+                        : file.getName().toLowerCase().endsWith(".pdf") ? List.of(file) : List.of());
+            } catch (IOException e) {
+                System.out.println("Could not read folder " + file + ": " + e.getMessage());
+            }
+        }
+        return pdfFiles.isEmpty() ? null : pdfFiles;
+    }
+
     // --- 4. DRAG OVER (Visual Feedback) ---
     @FXML
     void handleDragOver(DragEvent event) {
@@ -105,11 +163,10 @@ public class PrimaryController {
     }
     
     // --- 5. DRAG EXITED (Reset Text) ---
-    // You need to link this in Scene Builder -> Code -> On Drag Exited
     @FXML
     void handleDragExited(DragEvent event) {
-        statusLabel.setText("ATTACH PDF HERE!"); // Reset to original text
-        statusLabel.setStyle(""); // Reset color
+        statusLabel.setText(idleText); // Reset to original text
+        statusLabel.setStyle(idleStyle); // Reset color
         event.consume();
     }
     // encapsulated error dialog method
@@ -0,0 +1,110 @@
+package com.doculens;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * A first impression of a long document in a second or two: the text of a sample of pages spread
+ * over the whole document is analysed and shown as an estimate (keyword counts scaled up to the
+ * full page count) while the full pass reads every page. The full pass's own partial results are
+ * held back meanwhile, since the first N pages say less about the document than a spread sample;
+ * its exact result replaces the estimate when it is done.
+ *
+ * The sample is stratified: the document is cut into as many equal slices as there are sample
+ * pages and one page is drawn at random from each, so every part of the document is represented.
+ * Used for documents of at least 4x the sample size; -Ddoculens.quickLook.pages=... sets the sample
+ * size (default 40, 0 turns quick look off).
+ */
+public final class QuickLook {
+
+    private QuickLook() {
+    }
+
+    public static int configuredPages() {
+        return Math.max(0, Integer.getInteger("doculens.quickLook.pages", 40));
+    }
+
+    // True if a document this long is worth a quick look before the full pass
+    public static boolean shouldUse(int pageCount) {
+        int samplePages = configuredPages();
+        return samplePages > 0 && pageCount >= 4 * samplePages;
+    }
+
+    // The sample: one page (1-based) from each of 'samplePages' equal slices, in page order
+    static int[] samplePages(int pageCount, int samplePages) {
+        Random random = new Random(pageCount); // Same document length, same sample: re-opening looks the same
+        int[] pages = new int[Math.min(pageCount, samplePages)];
+        for (int i = 0; i < pages.length; i++) {
+            int sliceStart = (int) ((long) i * pageCount / pages.length);
+            int sliceEnd = (int) ((long) (i + 1) * pageCount / pages.length);
+            pages[i] = 1 + sliceStart + random.nextInt(sliceEnd - sliceStart);
+        }
+        return pages;
+    }
+
+    // Analyses the sample pages of an open document and returns the estimate for the whole of it
+    public static AnalysisResult estimate(PDDocument document, int pageCount, AnalysisListener listener)
+            throws IOException {
+        int[] pages = samplePages(pageCount, configuredPages());
+        AnalysisAccumulator sample = new AnalysisAccumulator();
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.QUICK_LOOK)) {
+            SampleProgress progress = new SampleProgress(listener, pages.length);
+            PageTextStripper stripper = new PageTextStripper(progress, pageCount);
+            for (int page : pages) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                stripper.streamPages(document, sample::addPage);
+            }
+            span.items(pages.length);
+        }
+        return sample.toResult(pageCount).asEstimate(pages.length);
+    }
+
+    // Passes everything through except partial results, so the estimate stays up until the exact result
+    public static AnalysisListener holdingPartialResults(AnalysisListener listener) {
+        return new AnalysisListener() {
+            @Override
+            public void stageStarted(AnalysisStage stage) {
+                listener.stageStarted(stage);
+            }
+
+            @Override
+            public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+                listener.stageProgress(stage, workDone, totalWork);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return listener.isCancelled();
+            }
+        };
+    }
+
+    // Reports "sample page i of n" under the quick look stage instead of the page number in the document
+    private static class SampleProgress implements AnalysisListener {
+        private final AnalysisListener listener;
+        private final int samplePages;
+        private int done;
+
+        SampleProgress(AnalysisListener listener, int samplePages) {
+            this.listener = listener;
+            this.samplePages = samplePages;
+        }
+
+        @Override
+        public void stageStarted(AnalysisStage stage) {
+        }
+
+        @Override
+        public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+            listener.stageProgress(AnalysisStage.QUICK_LOOK, ++done, samplePages);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return listener.isCancelled();
+        }
+    }
+}
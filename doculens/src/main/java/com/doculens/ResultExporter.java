@@ -0,0 +1,461 @@
+package com.doculens;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes an {@link AnalysisResult} as CSV (the same sections the dashboard export
+ * has always produced), as JSON or as JSON Lines (one compact object per line).
+ * Shared by the dashboard and the headless batch mode, so both write the same files.
+ *
+ * Everything is streamed straight into the given Writer (pass a buffered one), never built up
+ * as one big String, and keys are escaped for the target format: CSV fields are quoted when they
+ * contain commas, quotes or line breaks, JSON strings get the usual backslash escapes.
+ */
+public final class ResultExporter {
+
+    public enum Format {
+        CSV("csv"), JSON("json"), JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // ".jsonl" is JSON Lines, ".json" is JSON, anything else is CSV
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jsonl")) {
+                return JSONL;
+            }
+            return name.endsWith(".json") ? JSON : CSV;
+        }
+    }
+
+    private ResultExporter() {
+    }
+
+    // One document in the given format; 'source' is the file name or path the result came from
+    public static void write(Format format, String source, AnalysisResult result, Writer out) throws IOException {
+        switch (format) {
+            case JSON:
+                writeJson(source, result, out);
+                break;
+            case JSONL:
+                writeJsonLine(source, result, out);
+                break;
+            default:
+                writeCsv(result, out);
+        }
+    }
+
+    public static void writeCsv(AnalysisResult result, Writer out) throws IOException {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_CSV)) {
+            span.items(rowCount(result));
+            writeCsvSections(result, out);
+        }
+    }
+
+    // One JSON object per document
+    public static void writeJson(String source, AnalysisResult result, Writer out) throws IOException {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_JSON, source)) {
+            span.items(rowCount(result));
+            writeJsonDocument(source, result, out, true);
+            out.write('\n');
+        }
+    }
+
+    // The same object as writeJson, on a single line
+    public static void writeJsonLine(String source, AnalysisResult result, Writer out) throws IOException {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_JSON, source)) {
+            span.items(rowCount(result));
+            writeJsonDocument(source, result, out, false);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Opens one file for the results of many documents (batch mode). CSV gets one row per value
+     * (Document,Section,Key,Value), JSON an array of document objects, JSON Lines one object per line.
+     */
+    public static MultiDocumentWriter openMultiDocument(Path file, Format format) throws IOException {
+        return new MultiDocumentWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), format);
+    }
+
+    private static int rowCount(AnalysisResult result) {
+        return result.getPieData().size() + result.getLineData().size() + result.getWordData().size()
+                + result.getPhraseData().size() + tablePointCount(result.getTableData())
+                + result.getRuleData().stream().mapToInt(series -> series.getValues().size()).sum();
+    }
+
+    private static int tablePointCount(List<TableSeries> tables) {
+        int points = 0;
+        for (TableSeries series : tables) {
+            points += series.getPoints().size();
+        }
+        return points;
+    }
+
+    // Table values as written in the table: "1200" rather than "1200.0", but "2.5" stays "2.5"
+    static String formatNumber(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    // --- CSV ---
+
+    private static void writeCsvSections(AnalysisResult result, Writer out) throws IOException {
+        // A. Pie Data
+        writeCsvSection(out, "--- Demographic Data ---", "Category,Count", result.getPieData());
+        // B. Line Data
+        writeCsvSection(out, "--- Trend Data ---", "Year,Value", result.getLineData());
+        // C. Word Frequency and the sections after it, with a blank line between them but not after the last
+        Map<String, Integer> wordData = result.getWordData();
+        Map<String, Integer> phraseData = result.getPhraseData();
+        List<TableSeries> tableData = result.getTableData();
+        List<RuleSeries> ruleData = result.getRuleData();
+        boolean separate = false;
+        if (!wordData.isEmpty()) {
+            out.write("--- Keyword Frequency ---\n");
+            out.write("Word,Count\n");
+            writeCsvRows(out, wordData);
+            separate = true;
+        }
+        // D. Phrase Frequency
+        if (!phraseData.isEmpty()) {
+            if (separate) {
+                out.write('\n');
+            }
+            out.write("--- Phrase Frequency ---\n");
+            out.write("Phrase,Count\n");
+            writeCsvRows(out, phraseData);
+            separate = true;
+        }
+        // E. Table Data
+        if (!tableData.isEmpty()) {
+            if (separate) {
+                out.write('\n');
+            }
+            out.write("--- Table Data ---\n");
+            out.write("Column,Page,Row,Value\n");
+            for (TableSeries series : tableData) {
+                for (Map.Entry<String, Double> point : series.getPoints().entrySet()) {
+                    writeCsvField(out, series.getName());
+                    out.write("," + series.getPageNo() + ",");
+                    writeCsvField(out, point.getKey());
+                    out.write(',');
+                    out.write(formatNumber(point.getValue()));
+                    out.write('\n');
+                }
+            }
+            separate = true;
+        }
+        // F. Rule Matches (count rules: occurrences, sum rules: total of the numbers)
+        if (!ruleData.isEmpty()) {
+            if (separate) {
+                out.write('\n');
+            }
+            out.write("--- Rule Matches ---\n");
+            out.write("Rule,Kind,Entry,Value\n");
+            for (RuleSeries series : ruleData) {
+                for (Map.Entry<String, Double> value : series.getValues().entrySet()) {
+                    writeCsvField(out, series.getName());
+                    out.write("," + series.getKind().name().toLowerCase(Locale.ROOT) + ",");
+                    writeCsvField(out, value.getKey());
+                    out.write(',');
+                    out.write(formatNumber(value.getValue()));
+                    out.write('\n');
+                }
+            }
+        }
+    }
+
+    private static void writeCsvSection(Writer out, String title, String header, Map<String, Integer> data)
+            throws IOException {
+        if (data.isEmpty()) {
+            return;
+        }
+        out.write(title);
+        out.write('\n');
+        out.write(header);
+        out.write('\n');
+        writeCsvRows(out, data);
+        out.write('\n');
+    }
+
+    private static void writeCsvRows(Writer out, Map<String, Integer> data) throws IOException {
+        for (Map.Entry<String, Integer> entry : data.entrySet()) {
+            writeCsvField(out, entry.getKey());
+            out.write(',');
+            out.write(String.valueOf(entry.getValue()));
+            out.write('\n');
+        }
+    }
+
+    // RFC 4180: quotes the field when it has a comma, quote, line break or edge spaces, doubling inner quotes
+    static void writeCsvField(Writer out, String value) throws IOException {
+        boolean quote = !value.isEmpty()
+                && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ');
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    // --- JSON ---
+
+    private static void writeJsonDocument(String source, AnalysisResult result, Writer out, boolean pretty)
+            throws IOException {
+        String separator = pretty ? ",\n  " : ", ";
+        out.write(pretty ? "{\n  " : "{");
+        out.write("\"source\": ");
+        writeJsonString(out, source);
+        out.write(separator);
+        out.write("\"pages\": " + result.getPageCount());
+        out.write(separator);
+        out.write("\"textFound\": " + result.isTextFound());
+        out.write(separator);
+        out.write("\"percentages\": ");
+        writeJsonObject(out, result.getPieData());
+        out.write(separator);
+        out.write("\"yearValues\": ");
+        writeJsonObject(out, result.getLineData());
+        out.write(separator);
+        out.write("\"topWords\": ");
+        writeJsonObject(out, result.getWordData());
+        out.write(separator);
+        out.write("\"topPhrases\": ");
+        writeJsonObject(out, result.getPhraseData());
+        out.write(separator);
+        out.write("\"tables\": ");
+        writeJsonTables(out, result.getTableData());
+        out.write(separator);
+        out.write("\"rules\": ");
+        writeJsonRules(out, result.getRuleData());
+        if (result.getWordCountError() > 0) {
+            // Approximate counting: every count may be up to this much too high
+            out.write(separator);
+            out.write("\"topWordsMaxError\": " + result.getWordCountError());
+        }
+        out.write(pretty ? "\n}" : "}");
+    }
+
+    private static void writeJsonObject(Writer out, Map<String, Integer> data) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : data.entrySet()) {
+            if (!first) {
+                out.write(", ");
+            }
+            writeJsonString(out, entry.getKey());
+            out.write(": ");
+            out.write(String.valueOf(entry.getValue()));
+            first = false;
+        }
+        out.write('}');
+    }
+
+    // [{"column": ..., "page": n, "values": {row: value, ...}}, ...]
+    private static void writeJsonTables(Writer out, List<TableSeries> tables) throws IOException {
+        out.write('[');
+        for (int i = 0; i < tables.size(); i++) {
+            TableSeries series = tables.get(i);
+            out.write(i > 0 ? ", {\"column\": " : "{\"column\": ");
+            writeJsonString(out, series.getName());
+            out.write(", \"page\": " + series.getPageNo() + ", \"values\": {");
+            boolean first = true;
+            for (Map.Entry<String, Double> point : series.getPoints().entrySet()) {
+                if (!first) {
+                    out.write(", ");
+                }
+                writeJsonString(out, point.getKey());
+                out.write(": ");
+                out.write(formatNumber(point.getValue()));
+                first = false;
+            }
+            out.write("}}");
+        }
+        out.write(']');
+    }
+
+    // [{"rule": ..., "kind": "count" or "sum", "values": {entry: value, ...}}, ...]
+    private static void writeJsonRules(Writer out, List<RuleSeries> rules) throws IOException {
+        out.write('[');
+        for (int i = 0; i < rules.size(); i++) {
+            RuleSeries series = rules.get(i);
+            out.write(i > 0 ? ", {\"rule\": " : "{\"rule\": ");
+            writeJsonString(out, series.getName());
+            out.write(", \"kind\": \"" + series.getKind().name().toLowerCase(Locale.ROOT) + "\", \"values\": {");
+            boolean first = true;
+            for (Map.Entry<String, Double> value : series.getValues().entrySet()) {
+                if (!first) {
+                    out.write(", ");
+                }
+                writeJsonString(out, value.getKey());
+                out.write(": ");
+                out.write(formatNumber(value.getValue()));
+                first = false;
+            }
+            out.write("}}");
+        }
+        out.write(']');
+    }
+
+    // Writes the string quoted and escaped for JSON
+    static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    // Control characters, plus the two Unicode line separators that break JSON Lines readers
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * The results of many documents in one file. write() may be called from several threads;
+     * each document is written whole before the next one starts.
+     */
+    public static final class MultiDocumentWriter implements Closeable {
+        private final Writer out;
+        private final Format format;
+        private int documents;
+
+        private MultiDocumentWriter(Writer out, Format format) throws IOException {
+            this.out = out;
+            this.format = format;
+            if (format == Format.CSV) {
+                out.write("Document,Section,Key,Value\n");
+            } else if (format == Format.JSON) {
+                out.write("[\n");
+            }
+        }
+
+        public synchronized void write(String source, AnalysisResult result) throws IOException {
+            switch (format) {
+                case JSON:
+                    if (documents > 0) {
+                        out.write(",\n");
+                    }
+                    try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_JSON, source)) {
+                        span.items(rowCount(result));
+                        writeJsonDocument(source, result, out, true);
+                    }
+                    break;
+                case JSONL:
+                    writeJsonLine(source, result, out);
+                    break;
+                default:
+                    try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXPORT_CSV, source)) {
+                        span.items(rowCount(result));
+                        writeLongRows(source, "percentage", result.getPieData());
+                        writeLongRows(source, "year", result.getLineData());
+                        writeLongRows(source, "word", result.getWordData());
+                        writeLongRows(source, "phrase", result.getPhraseData());
+                        writeTableRows(source, result.getTableData());
+                        writeRuleRows(source, result.getRuleData());
+                    }
+            }
+            documents++;
+        }
+
+        private void writeLongRows(String source, String section, Map<String, Integer> data) throws IOException {
+            for (Map.Entry<String, Integer> entry : data.entrySet()) {
+                writeCsvField(out, source);
+                out.write(',');
+                out.write(section);
+                out.write(',');
+                writeCsvField(out, entry.getKey());
+                out.write(',');
+                out.write(String.valueOf(entry.getValue()));
+                out.write('\n');
+            }
+        }
+
+        // Key: "column (page N) / row"
+        private void writeTableRows(String source, List<TableSeries> tables) throws IOException {
+            for (TableSeries series : tables) {
+                for (Map.Entry<String, Double> point : series.getPoints().entrySet()) {
+                    writeCsvField(out, source);
+                    out.write(",table,");
+                    writeCsvField(out, series + " / " + point.getKey());
+                    out.write(',');
+                    out.write(formatNumber(point.getValue()));
+                    out.write('\n');
+                }
+            }
+        }
+
+        // Key: "rule / entry"
+        private void writeRuleRows(String source, List<RuleSeries> rules) throws IOException {
+            for (RuleSeries series : rules) {
+                for (Map.Entry<String, Double> value : series.getValues().entrySet()) {
+                    writeCsvField(out, source);
+                    out.write(",rule,");
+                    writeCsvField(out, series.getName() + " / " + value.getKey());
+                    out.write(',');
+                    out.write(formatNumber(value.getValue()));
+                    out.write('\n');
+                }
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                if (format == Format.JSON) {
+                    out.write(documents > 0 ? "\n]\n" : "]\n");
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.doculens;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds every occurrence of many terms in one left-to-right pass over the text (Aho-Corasick):
+ * the terms are built into a trie whose nodes also know the longest suffix that is itself the
+ * start of a term, so a mismatch falls back along those links instead of going back in the text.
+ * The cost is linear in the text plus the matches, however many terms there are.
+ *
+ * Matching ignores case and treats any run of whitespace (line breaks included) as one space, so
+ * "Net  revenue" and "net\nrevenue" both match "net revenue". A term that starts or ends with a
+ * letter or digit only matches whole words there: "kg" is not found in "kgs", "$" is found in "$5".
+ */
+final class RuleMatcher {
+
+    // Called for every occurrence; start and end are indexes into the original text
+    interface MatchHandler {
+        void match(int termId, int start, int end);
+    }
+
+    private static final int ROOT = 0;
+
+    // --- The trie: transitions in an open-addressing table keyed by (state, char) ---
+    private final int[] rootNext = new int[128]; // The root is stepped from most often, so ASCII gets a plain array
+    private long[] keys;
+    private int[] targets;
+    private int mask;
+    private int stateCount = 1;
+
+    private int[] fail;        // Longest proper suffix of the state that is also a trie state
+    private int[] firstTerm;   // A term that ends in this state, or -1
+    private int[] outputLink;  // The nearest state down the fail chain where a term ends, or -1
+    private final int[] nextTerm;      // Another term ending in the same state (duplicates), or -1
+    private final int[] termLength;    // In normalised characters
+    private final boolean[] wordStart; // Must start at a word boundary
+    private final boolean[] wordEnd;   // Must end at a word boundary
+    private final int window;          // Text positions remembered, to find where a match started
+
+    RuleMatcher(List<String> terms) {
+        int chars = 1;
+        for (String term : terms) {
+            chars += term.length();
+        }
+        int capacity = Integer.highestOneBit(Math.max(16, chars * 2)) * 2;
+        keys = new long[capacity];
+        Arrays.fill(keys, -1);
+        targets = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(rootNext, -1);
+        firstTerm = new int[chars];
+        Arrays.fill(firstTerm, -1);
+
+        nextTerm = new int[terms.size()];
+        termLength = new int[terms.size()];
+        wordStart = new boolean[terms.size()];
+        wordEnd = new boolean[terms.size()];
+        int longest = 1;
+        for (int id = 0; id < terms.size(); id++) {
+            String term = normalise(terms.get(id));
+            if (term.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < term.length(); i++) {
+                int next = step(state, term.charAt(i));
+                if (next < 0) {
+                    next = stateCount++;
+                    put(state, term.charAt(i), next);
+                }
+                state = next;
+            }
+            nextTerm[id] = firstTerm[state];
+            firstTerm[state] = id;
+            termLength[id] = term.length();
+            wordStart[id] = Character.isLetterOrDigit(term.charAt(0));
+            wordEnd[id] = Character.isLetterOrDigit(term.charAt(term.length() - 1));
+            longest = Math.max(longest, term.length());
+        }
+        window = Integer.highestOneBit(longest) * 2;
+        buildFailLinks();
+    }
+
+    /**
+     * Reports every match in the text, in the order the matches end. Empty terms never match.
+     */
+    void findAll(String text, MatchHandler handler) {
+        int[] positions = new int[window]; // Where the last 'window' normalised characters came from
+        int steps = 0;
+        int state = ROOT;
+        boolean lastWasSpace = true; // Leading whitespace is skipped, like in the terms
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                if (lastWasSpace) {
+                    continue;
+                }
+                c = ' ';
+                lastWasSpace = true;
+            } else {
+                c = Character.toLowerCase(c);
+                lastWasSpace = false;
+            }
+            positions[steps++ & (window - 1)] = i;
+
+            int next;
+            while ((next = step(state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = Math.max(next, ROOT);
+
+            for (int s = firstTerm[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                for (int id = firstTerm[s]; id >= 0; id = nextTerm[id]) {
+                    int start = positions[(steps - termLength[id]) & (window - 1)];
+                    boolean wholeWord = (!wordStart[id] || !isWordChar(text, start - 1))
+                            && (!wordEnd[id] || !isWordChar(text, i + 1));
+                    if (wholeWord) {
+                        handler.match(id, start, i + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    // Lower case, trimmed, whitespace runs as one space: the form terms and text are compared in
+    static String normalise(String term) {
+        StringBuilder sb = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (isSpace(c)) {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                    sb.append(' ');
+                }
+            } else {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        int end = sb.length();
+        return end > 0 && sb.charAt(end - 1) == ' ' ? sb.substring(0, end - 1) : sb.toString();
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || c == '\u00A0';
+    }
+
+    private static boolean isWordChar(String text, int index) {
+        return index >= 0 && index < text.length() && Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    // Breadth first, so a state's fail target is always finished before the state itself
+    private void buildFailLinks() {
+        fail = new int[stateCount];
+        outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        int[][] edges = edgesByState();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int slot : edges[ROOT]) {
+            fail[targets[slot]] = ROOT;
+            queue.add(targets[slot]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int slot : edges[state]) {
+                int child = targets[slot];
+                char c = (char) keys[slot];
+                int f = fail[state];
+                int target;
+                while ((target = step(f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = Math.max(target, ROOT);
+                outputLink[child] = firstTerm[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    // The table slots of every state's outgoing edges (only needed while building)
+    private int[][] edgesByState() {
+        int[] counts = new int[stateCount];
+        for (long key : keys) {
+            if (key >= 0) {
+                counts[(int) (key >>> 16)]++;
+            }
+        }
+        int[][] edges = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            edges[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] >= 0) {
+                int state = (int) (keys[slot] >>> 16);
+                edges[state][counts[state]++] = slot;
+            }
+        }
+        return edges;
+    }
+
+    private int step(int state, char c) {
+        if (state == ROOT && c < 128) {
+            return rootNext[c];
+        }
+        long key = ((long) state << 16) | c;
+        for (int slot = hash(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return targets[slot];
+            }
+            if (keys[slot] < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void put(int state, char c, int target) {
+        if (state == ROOT && c < 128) {
+            rootNext[c] = target;
+        }
+        long key = ((long) state << 16) | c;
+        int slot = hash(key);
+        while (keys[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        targets[slot] = target;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,73 @@
+package com.doculens;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What one user-defined rule (see {@link ExtractionRules}) found: per entry, the number of
+ * occurrences (count rules) or the total of the numbers next to it (sum rules), in rule file order.
+ */
+public final class RuleSeries {
+
+    private final String name;
+    private final ExtractionRules.Kind kind;
+    private final ExtractionRules.Chart chart;
+    private final Map<String, Double> values;
+
+    public RuleSeries(String name, ExtractionRules.Kind kind, ExtractionRules.Chart chart, Map<String, Double> values) {
+        this.name = name;
+        this.kind = kind;
+        this.chart = chart;
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExtractionRules.Kind getKind() {
+        return kind;
+    }
+
+    // The chart the rule file asked for
+    public ExtractionRules.Chart getChart() {
+        return chart;
+    }
+
+    // Entry -> occurrences or total
+    public Map<String, Double> getValues() {
+        return values;
+    }
+
+    // The same series with every value multiplied (quick-look estimates); counts stay whole numbers
+    RuleSeries scaled(double scale) {
+        Map<String, Double> scaled = new LinkedHashMap<>();
+        values.forEach((key, value) -> scaled.put(key,
+                kind == ExtractionRules.Kind.COUNT ? (double) Math.round(value * scale) : value * scale));
+        return new RuleSeries(name, kind, chart, scaled);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RuleSeries)) {
+            return false;
+        }
+        RuleSeries other = (RuleSeries) o;
+        return name.equals(other.name) && kind == other.kind && chart == other.chart && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, kind, chart, values);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
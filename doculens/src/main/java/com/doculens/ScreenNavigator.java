@@ -0,0 +1,103 @@
+package com.doculens;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Switches the window between the screens, loading each screen's FXML (and creating its
+ * controller) only once. Screens keep their state while hidden: controllers are handed a new
+ * document instead of being rebuilt, and the dashboard stays alive behind the start screen, so
+ * going back to it is instant. The screens after the start screen are preloaded once the window
+ * is up. FX thread only.
+ */
+public final class ScreenNavigator {
+
+    public enum Screen {
+        PRIMARY("primary"), SECONDARY("secondary"), VISUALIZATION("VisualizationController");
+
+        private final String fxml;
+
+        Screen(String fxml) {
+            this.fxml = fxml;
+        }
+    }
+
+    private static final Map<Screen, Parent> ROOTS = new EnumMap<>(Screen.class);
+    private static final Map<Screen, Object> CONTROLLERS = new EnumMap<>(Screen.class);
+    private static final ReadOnlyBooleanWrapper DASHBOARD_AVAILABLE = new ReadOnlyBooleanWrapper(false);
+
+    private static Scene scene;
+
+    private ScreenNavigator() {
+    }
+
+    // The window's scene, showing the first screen
+    static Scene createScene(Screen first, double width, double height) {
+        scene = new Scene(root(first), width, height);
+        return scene;
+    }
+
+    // Shows a screen (loading it the first time) and returns its controller
+    public static <T> T show(Screen screen) {
+        T controller = controller(screen);
+        if (scene.getRoot() != ROOTS.get(screen)) {
+            scene.setRoot(ROOTS.get(screen));
+        }
+        if (screen == Screen.VISUALIZATION) {
+            DASHBOARD_AVAILABLE.set(true);
+        }
+        return controller;
+    }
+
+    // The controller of a screen, loading the screen if it has not been yet (does not show it)
+    @SuppressWarnings("unchecked")
+    public static <T> T controller(Screen screen) {
+        load(screen);
+        return (T) CONTROLLERS.get(screen);
+    }
+
+    // True once a dashboard has been shown, so the start screen can offer to go back to it
+    public static ReadOnlyBooleanProperty dashboardAvailableProperty() {
+        return DASHBOARD_AVAILABLE.getReadOnlyProperty();
+    }
+
+    // Loads the other screens one per FX pulse, so each is ready before it is first needed
+    static void preload() {
+        for (Screen screen : Screen.values()) {
+            Platform.runLater(() -> {
+                try {
+                    load(screen);
+                } catch (UncheckedIOException e) {
+                    System.out.println("Could not preload " + screen.fxml + ".fxml: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static Parent root(Screen screen) {
+        load(screen);
+        return ROOTS.get(screen);
+    }
+
+    private static void load(Screen screen) {
+        if (ROOTS.containsKey(screen)) {
+            return;
+        }
+        FXMLLoader loader = new FXMLLoader(App.class.getResource(screen.fxml + ".fxml"));
+        try {
+            ROOTS.put(screen, loader.load());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + screen.fxml + ".fxml", e);
+        }
+        CONTROLLERS.put(screen, loader.getController());
+    }
+}
@@ -1,22 +1,17 @@
 package com.doculens;
 
-import javafx.embed.swing.SwingFXUtils;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
+import javafx.scene.control.ListView;
 import javafx.scene.image.ImageView;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.ImageType;
-import org.apache.pdfbox.rendering.PDFRenderer;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.stage.Stage;
-import javafx.scene.Node;
 
 public class SecondaryController {
 
@@ -27,11 +22,37 @@ public class SecondaryController {
     @FXML 
     private ImageView pdfThumbnail; 
 
+    @FXML
+    private ListView<Integer> pageStrip; // One cell per page, only the visible ones get rendered
+
+    @FXML
+    private Label pageCountLabel;
+
+    private static final int PREVIEW_HEIGHT = 300; // Rendered at twice the ImageView size so it stays sharp
+
     private File currentPdfFile;
+    private ThumbnailRenderer thumbnailRenderer;
+    private int generation; // Bumped whenever the document changes, so late results of an old one are dropped
+    private PreloadListener preload; // Listens to the background parse of the previewed document, if one was started
 
+    @FXML
+    private void initialize() {
+        // Set up once; the screen is reused for every document
+        pageStrip.getSelectionModel().selectedItemProperty().addListener((observable, oldPage, page) -> {
+            if (page != null && thumbnailRenderer != null) {
+                showPage(thumbnailRenderer, page);
+            }
+        });
+    }
+
+    // Shows a (new) document: whatever the screen showed before is dropped first
     public void setPdfFile(File file) {
+        closeRenderer();
         this.currentPdfFile = file;
-        
+        pdfThumbnail.setImage(null);
+        pageCountLabel.setText("");
+        pageStrip.getItems().clear();
+
         if (fileNameLabel != null && file != null) {
             fileNameLabel.setText(file.getName());
             
@@ -41,53 +62,102 @@ public class SecondaryController {
     }
 
     private void generateThumbnail(File file) {
-        try {
-            try (PDDocument document = PDDocument.load(file)) {
-                PDFRenderer renderer = new PDFRenderer(document);
-                
-                // Render page 0 at 72 DPI
-                BufferedImage bufferedImage = renderer.renderImageWithDPI(0, 72, ImageType.RGB);
-                Image fxImage = SwingFXUtils.toFXImage(bufferedImage, null);
-                
-                // Set the image
-                if (pdfThumbnail != null) {
-                    pdfThumbnail.setImage(fxImage);
-                } else {
-                    System.out.println("Error: pdfThumbnail is null. Check fx:id in Scene Builder!");
-                }
+        int thisGeneration = generation;
+        // Only open the document here (no text extraction), so big files preview as fast as small ones
+        Task<ThumbnailRenderer> openTask = new Task<>() {
+            @Override
+            protected ThumbnailRenderer call() throws Exception {
+                return ThumbnailRenderer.open(file);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        };
+
+        openTask.setOnSucceeded(event -> {
+            if (thisGeneration != generation) {
+                openTask.getValue().close(); // The user moved on before the document finished opening
+                return;
+            }
+            thumbnailRenderer = openTask.getValue();
+            int pageCount = thumbnailRenderer.getPageCount();
+            pageCountLabel.setText(pageCount == 1 ? "1 page" : pageCount + " pages");
+            ThumbnailRenderer renderer = thumbnailRenderer;
+            pageStrip.setCellFactory(list -> new PageThumbnailCell(renderer));
+            pageStrip.getItems().setAll(IntStream.range(0, pageCount).boxed().collect(Collectors.toList()));
+
+            if (pageCount > 0) {
+                showPage(thumbnailRenderer, 0);
+            }
+            // Start the full parse in the background, so "Visualize" finds it done (or under way)
+            PreloadListener listener = new PreloadListener();
+            preload = listener;
+            BackgroundExecutor.execute(() -> preloadAnalysis(file, listener));
+        });
+        openTask.setOnFailed(event -> {
+            openTask.getException().printStackTrace();
             System.out.println("Could not generate thumbnail.");
+        });
+
+        BackgroundExecutor.execute(openTask);
+    }
+
+    // Shows one page in the big preview
+    private void showPage(ThumbnailRenderer renderer, int pageIndex) {
+        if (pdfThumbnail != null) {
+            renderer.request(pageIndex, PREVIEW_HEIGHT, pdfThumbnail::setImage);
+        } else {
+            System.out.println("Error: pdfThumbnail is null. Check fx:id in Scene Builder!");
+        }
+    }
+
+    private static void preloadAnalysis(File file, PreloadListener listener) {
+        try {
+            DocumentCache.getInstance().getOrLoad(file, listener);
+        } catch (CancellationException e) {
+            // The preview was left before the parse finished
+        } catch (IOException | RuntimeException e) {
+            // The dashboard will try again and show the error
+            System.out.println("Background analysis failed: " + e.getMessage());
+        }
+    }
+
+    // Lets go of the document; a renderer still being opened is closed as soon as it arrives,
+    // and the background parse stops unless the dashboard has joined it
+    private void closeRenderer() {
+        generation++;
+        if (preload != null) {
+            preload.cancel();
+            preload = null;
+        }
+        currentPdfFile = null;
+        pageStrip.getItems().clear();
+        if (thumbnailRenderer != null) {
+            thumbnailRenderer.close();
+            thumbnailRenderer = null;
         }
     }
 
     @FXML
     private void handleVisualize() {
         if (currentPdfFile != null) {
-            try {
-                System.out.println("Switching to Visualization Dashboard...");
-
-                // 1. Load the Visualization FXML
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("VisualizationController.fxml"));
-                Parent root = loader.load();
+            System.out.println("Switching to Visualization Dashboard...");
 
-                // 2. Get the Controller for the new screen
-                VisualizationController visController = loader.getController();
+            // 1. The dashboard screen is loaded once; it keeps its charts if it already shows this file
+            VisualizationController visController = ScreenNavigator.controller(ScreenNavigator.Screen.VISUALIZATION);
 
-                // 3. PASS THE DATA (The Critical Step)
-                // This triggers the analysis inside the next screen
+            // 2. PASS THE DATA (The Critical Step)
+            // This triggers the analysis inside the next screen
+            if (!visController.isShowing(currentPdfFile)) {
                 visController.startAnalysis(currentPdfFile);
-
-                // 4. Switch the Scene
-                // We use 'fileNameLabel' to find the current window (Stage)
-                Stage stage = (Stage) fileNameLabel.getScene().getWindow();
-                stage.getScene().setRoot(root);
-
-            } catch (IOException e) {
-                e.printStackTrace();
-                System.out.println("Error: Could not load visualization.fxml. Check if the file exists!");
             }
+            // The dashboard joins the background parse once its task gets going, so until then the
+            // parse must not stop; from now on it lives exactly as long as the dashboard's task
+            if (preload != null) {
+                preload.handOver(visController.getAnalysisTask());
+                preload = null;
+            }
+
+            // 3. Switch the Scene (the preview is done with its document)
+            closeRenderer();
+            ScreenNavigator.show(ScreenNavigator.Screen.VISUALIZATION);
         } else {
             System.out.println("Error: No PDF file is currently selected.");
         }
@@ -95,10 +165,40 @@ public class SecondaryController {
 
     @FXML
     private void handleNoCancel() {
-        try {
-            App.setRoot("primary");
-        } catch (IOException e) {
-            e.printStackTrace();
+        closeRenderer();
+        ScreenNavigator.show(ScreenNavigator.Screen.PRIMARY);
+    }
+
+    // The preview's interest in the background parse: cancelled when the preview is left, or
+    // handed over to the dashboard's task when Visualize is pressed
+    private static class PreloadListener implements AnalysisListener {
+        private volatile boolean cancelled;
+        private volatile Task<?> owner; // The dashboard task this parse was handed to, or null
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        void handOver(Task<?> task) {
+            if (task == null) {
+                cancelled = true; // The dashboard already has its result
+            } else {
+                owner = task;
+            }
+        }
+
+        @Override
+        public void stageStarted(AnalysisStage stage) {
+        }
+
+        @Override
+        public void stageProgress(AnalysisStage stage, long workDone, long totalWork) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            Task<?> task = owner;
+            return task != null ? task.isCancelled() : cancelled;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+package com.doculens;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Approximate word counts in a fixed amount of memory (the Space-Saving heavy-hitters algorithm).
+ *
+ * At most 'capacity' words are tracked. When a new word arrives and the table is full, the word
+ * with the smallest count is replaced, and the newcomer inherits that count (remembered as its
+ * error). So counts can only be over-estimated, by at most the current smallest count
+ * ({@link #getMaxError()}), and any word that occurs more often than that is guaranteed to be
+ * tracked. The frequent words the dashboard shows come out right; the long tail is what gets lost.
+ *
+ * Layout: words live in numbered slots, each with its own reused char buffer (so replacing a word
+ * allocates nothing once the buffers have grown); an open-addressing index maps words to slots, and
+ * a min-heap of slots ordered by count finds the word to replace in O(log capacity).
+ */
+public class SpaceSavingCounter implements WordCounts {
+
+    private final int capacity;
+    private final char[][] words;
+    private final int[] lengths;
+    private final int[] hashes;
+    private final int[] counts;
+    private final int[] errors;
+    private final int[] heap; // Slots, smallest count first
+    private final int[] heapPosition; // Slot -> its index in the heap
+    private final int[] index; // Open addressing: slot + 1, or 0 when empty
+    private int size;
+    private int mergedError; // Error bounds of the sketches merged in (words they dropped are not here)
+
+    public SpaceSavingCounter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        words = new char[capacity][];
+        lengths = new int[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        errors = new int[capacity];
+        heap = new int[capacity];
+        heapPosition = new int[capacity];
+        index = new int[Integer.highestOneBit(Math.max(8, capacity * 2) - 1) << 1]; // Load factor <= 0.5
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void add(char[] word, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + word[i]; // Same as String.hashCode()
+        }
+        int mask = index.length - 1;
+        int position = WordCounter.mix(hash) & mask;
+        while (index[position] != 0) {
+            int slot = index[position] - 1;
+            if (hashes[slot] == hash && sameWord(slot, word, length)) {
+                increment(slot, 1);
+                return;
+            }
+            position = (position + 1) & mask;
+        }
+        insert(word, length, hash, 1);
+    }
+
+    @Override
+    public void add(String word, int count) {
+        add(word, count, 0);
+    }
+
+    /**
+     * Folds another counter in, entry by entry, carrying over the other sketch's per-word errors.
+     * The error bound of the result is at most the sum of both bounds.
+     */
+    @Override
+    public void merge(WordCounts other) {
+        if (other instanceof SpaceSavingCounter) {
+            SpaceSavingCounter sketch = (SpaceSavingCounter) other;
+            for (int slot = 0; slot < sketch.size; slot++) {
+                add(sketch.wordAt(slot), sketch.counts[slot], sketch.errors[slot]);
+            }
+        } else {
+            other.forEach(this::add);
+        }
+        mergedError = saturatedAdd(mergedError, other.getMaxError());
+    }
+
+    @Override
+    public int get(String word) {
+        int slot = find(word, word.hashCode());
+        return slot >= 0 ? counts[slot] : 0;
+    }
+
+    // The least number of times a tracked word really occurred (its count minus its error)
+    public int getGuaranteed(String word) {
+        int slot = find(word, word.hashCode());
+        return slot >= 0 ? counts[slot] - errors[slot] : 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getMaxError() {
+        int untracked = saturatedAdd(size < capacity ? 0 : counts[heap[0]], mergedError);
+        return Math.max(untracked, maxRecordedError());
+    }
+
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int slot = 0; slot < size; slot++) {
+            action.accept(wordAt(slot), counts[slot]);
+        }
+    }
+
+    // Highest (estimated) counts first, ties in alphabetical order, like WordCounter.topK
+    @Override
+    public Map<String, Integer> topK(int k) {
+        Integer[] slots = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = i;
+        }
+        Arrays.sort(slots, (a, b) -> counts[a] != counts[b]
+                ? Integer.compare(counts[b], counts[a])
+                : compareWords(a, b));
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(k, size); i++) {
+            top.put(wordAt(slots[i]), counts[slots[i]]);
+        }
+        return top;
+    }
+
+    private void add(String word, int count, int error) {
+        int existing = find(word, word.hashCode());
+        if (existing >= 0) {
+            errors[existing] = saturatedAdd(errors[existing], error);
+            increment(existing, count);
+        } else {
+            int slot = insert(word.toCharArray(), word.length(), word.hashCode(), count);
+            errors[slot] = saturatedAdd(errors[slot], error);
+        }
+    }
+
+    private int find(String word, int hash) {
+        int mask = index.length - 1;
+        int position = WordCounter.mix(hash) & mask;
+        while (index[position] != 0) {
+            int slot = index[position] - 1;
+            if (hashes[slot] == hash && WordCounter.sameWord(word, words[slot], lengths[slot])) {
+                return slot;
+            }
+            position = (position + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void increment(int slot, int count) {
+        counts[slot] = saturatedAdd(counts[slot], count);
+        siftDown(heapPosition[slot]);
+    }
+
+    // Starts tracking a word (replacing the least frequent one when full) and returns its slot
+    private int insert(char[] word, int length, int hash, int count) {
+        int slot;
+        int inherited = 0;
+        if (size < capacity) {
+            slot = size++;
+            heap[slot] = slot;
+            heapPosition[slot] = slot;
+        } else {
+            // Full: the word with the smallest count makes room, and its count becomes the newcomer's error
+            slot = heap[0];
+            inherited = counts[slot];
+            removeFromIndex(slot);
+        }
+        if (words[slot] == null || words[slot].length < length) {
+            words[slot] = new char[Math.max(length, 16)];
+        }
+        System.arraycopy(word, 0, words[slot], 0, length);
+        lengths[slot] = length;
+        hashes[slot] = hash;
+        counts[slot] = saturatedAdd(inherited, count);
+        errors[slot] = inherited;
+        addToIndex(slot);
+        if (inherited == 0) {
+            siftUp(heapPosition[slot]);
+        }
+        siftDown(heapPosition[slot]);
+        return slot;
+    }
+
+    private String wordAt(int slot) {
+        return new String(words[slot], 0, lengths[slot]);
+    }
+
+    // Same order as String.compareTo, without making the Strings
+    private int compareWords(int slotA, int slotB) {
+        int common = Math.min(lengths[slotA], lengths[slotB]);
+        for (int i = 0; i < common; i++) {
+            if (words[slotA][i] != words[slotB][i]) {
+                return words[slotA][i] - words[slotB][i];
+            }
+        }
+        return lengths[slotA] - lengths[slotB];
+    }
+
+    private boolean sameWord(int slot, char[] word, int length) {
+        if (lengths[slot] != length) {
+            return false;
+        }
+        char[] stored = words[slot];
+        for (int i = 0; i < length; i++) {
+            if (stored[i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToIndex(int slot) {
+        int mask = index.length - 1;
+        int position = WordCounter.mix(hashes[slot]) & mask;
+        while (index[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        index[position] = slot + 1;
+    }
+
+    // Linear-probing delete: shift later entries of the same probe run back into the gap
+    private void removeFromIndex(int slot) {
+        int mask = index.length - 1;
+        int gap = WordCounter.mix(hashes[slot]) & mask;
+        while (index[gap] != slot + 1) {
+            gap = (gap + 1) & mask;
+        }
+        int next = (gap + 1) & mask;
+        while (index[next] != 0) {
+            int home = WordCounter.mix(hashes[index[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[gap] = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[heap[position]]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[heap[left]] < counts[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && counts[heap[right]] < counts[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int slotA = heap[a];
+        int slotB = heap[b];
+        heap[a] = slotB;
+        heap[b] = slotA;
+        heapPosition[slotB] = a;
+        heapPosition[slotA] = b;
+    }
+
+    // Errors only come from replacements (or from merged-in sketches that had them)
+    private int maxRecordedError() {
+        int max = 0;
+        for (int slot = 0; slot < size; slot++) {
+            max = Math.max(max, errors[slot]);
+        }
+        return max;
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+}
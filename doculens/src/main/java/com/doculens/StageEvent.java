@@ -0,0 +1,43 @@
+package com.doculens;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one {@link Diagnostics.Span}.
+ * Record with: java -XX:StartFlightRecording=filename=doculens.jfr ... and open it in JDK Mission Control
+ * (Event Browser, category "DocuLens").
+ */
+@Name("com.doculens.Stage")
+@Label("DocuLens Stage")
+@Category("DocuLens")
+@Description("One pipeline stage: PDF load, text strip, extractors, charts, export")
+class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Detail")
+    String detail;
+
+    @Label("Own Time")
+    @Description("Duration minus time spent in other stages called from this one")
+    @Timespan(Timespan.NANOSECONDS)
+    long ownTime;
+
+    @Label("Items")
+    long items;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Heap Delta")
+    @DataAmount
+    long heapDelta;
+}
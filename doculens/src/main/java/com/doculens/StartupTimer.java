@@ -0,0 +1,51 @@
+package com.doculens;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * When the startup phases were reached, in ms since the JVM process started (so the JVM's and
+ * JavaFX's own boot time are included, which is what the user actually waits for).
+ *
+ * The phases show up at the end of the diagnostics report, and are printed as soon as the first
+ * frame is on screen when started with -Ddoculens.startup.log=true.
+ */
+public final class StartupTimer {
+
+    private static final long PROCESS_START = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+
+    private StartupTimer() {
+    }
+
+    // Records that a phase was reached (only the first time)
+    public static synchronized void mark(String phase) {
+        PHASES.putIfAbsent(phase, System.currentTimeMillis() - PROCESS_START);
+    }
+
+    // Prints the phases so far if -Ddoculens.startup.log=true
+    public static void log() {
+        if (Boolean.getBoolean("doculens.startup.log")) {
+            System.out.println(report());
+        }
+    }
+
+    // "Startup: main 180 ms -> primary screen 350 ms -> ...", or "" if nothing was recorded
+    public static synchronized String report() {
+        if (PHASES.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("Startup:");
+        String separator = " ";
+        for (Map.Entry<String, Long> phase : PHASES.entrySet()) {
+            sb.append(String.format(Locale.ROOT, "%s%s %d ms", separator, phase.getKey(), phase.getValue()));
+            separator = " -> ";
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.doculens;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * The one-off costs that used to land on the first PDF the user opens, paid in the background
+ * once the window is already on screen:
+ * PDFBox's font scan (it reads every installed font the first time a font is mapped, which takes
+ * seconds on machines with many fonts), the first load / text strip / render of a document,
+ * the analysis classes and the user's extraction rules, the classes of the next screens, and the
+ * CoreNLP pipeline in lemma mode.
+ *
+ * Nothing here is needed for correctness: if it has not finished, or fails, the first document
+ * simply pays the cost itself. Off with -Ddoculens.warmUp=false.
+ */
+public final class StartupWarmUp {
+
+    // Loaded (not initialised) ahead of time: the screens that follow the start screen
+    private static final String[] SCREEN_CLASSES = {
+        "com.doculens.SecondaryController",
+        "com.doculens.VisualizationController",
+        "com.doculens.ChartGenerator",
+        "javafx.scene.chart.PieChart",
+        "javafx.scene.chart.LineChart",
+        "javafx.scene.chart.BarChart",
+        "javafx.scene.image.ImageView",
+        "javafx.embed.swing.SwingFXUtils",
+    };
+
+    private StartupWarmUp() {
+    }
+
+    // Starts the warm-up on a background thread, unless turned off
+    public static void start() {
+        if (!Boolean.parseBoolean(System.getProperty("doculens.warmUp", "true"))) {
+            return;
+        }
+        if (KeywordLemmatizer.isEnabled()) {
+            KeywordLemmatizer.getInstance().warmUp();
+        }
+        BackgroundExecutor.execute(() -> {
+            run();
+            StartupTimer.mark("warm-up done");
+            StartupTimer.log();
+        });
+    }
+
+    // The warm-up itself, on the calling thread
+    public static void run() {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.WARM_UP)) {
+            warmUpPdfBox();
+            // Static initialisers of the analysis (stop word tables, patterns)
+            Class.forName(DataExtractor.class.getName(), true, StartupWarmUp.class.getClassLoader());
+            Class.forName(TextAnalyzer.class.getName(), true, StartupWarmUp.class.getClassLoader());
+            ExtractionRules.configured(); // Reads and compiles the rule files, so their errors show at startup
+            for (String name : SCREEN_CLASSES) {
+                Class.forName(name, false, StartupWarmUp.class.getClassLoader());
+            }
+            span.items(1);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            System.err.println("Warm-up skipped: " + e);
+        }
+    }
+
+    private static void warmUpPdfBox() throws IOException {
+        // 1. The font scan (or reading ~/.pdfbox.cache), triggered by the first font lookup
+        FontMappers.instance().getFontBoxFont("Helvetica", null);
+
+        // 2. A one-page document through the same calls a real one goes through
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 12);
+                content.newLineAtOffset(72, 720);
+                content.showText("DocuLens 2024: 10% warm-up");
+                content.endText();
+            }
+            document.save(bytes);
+        }
+        try (PDDocument document = PDDocument.load(bytes.toByteArray())) {
+            new PDFTextStripper().getText(document);
+            new PDFRenderer(document).renderImageWithDPI(0, 9, ImageType.RGB);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.doculens;
+
+import java.util.List;
+
+/**
+ * Receives the tables found on a PDF's pages (see {@link TableExtractor}), one page at a time.
+ */
+@FunctionalInterface
+public interface TableConsumer {
+
+    // Only called for pages with at least one table; pageNo is 1-based
+    void acceptTables(int pageNo, List<TableSeries> tables);
+}
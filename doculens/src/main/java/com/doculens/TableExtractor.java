@@ -0,0 +1,393 @@
+package com.doculens;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds numeric tables on a page from where its words are, not from the text: PDFs have no table
+ * structure, just words placed at positions, and the plain text of a table is one long run of
+ * labels and numbers. {@link PageTextStripper} feeds in every word with its box; at the end of the
+ * page the words are put into lines, the lines into cells, runs of lines with several cells into
+ * tables and the cells into columns. Every mostly-numeric column becomes a {@link TableSeries}.
+ *
+ * The grouping runs on two grids instead of comparing words with each other: baselines are binned
+ * by height (a word only looks at its own bin and the two next to it to find its line) and columns
+ * are the runs of an x-projection bitmap, so a page costs time linear in its words and the arrays
+ * are reused from page to page. -Ddoculens.tables.max=... caps the series per document (see
+ * {@link #configuredMaxSeries()}); 0 turns the extraction off.
+ */
+public class TableExtractor {
+
+    private static final int MIN_ROWS = 3;          // Rows in a table, the header included
+    private static final int MIN_POINTS = 2;        // Values in a series worth charting
+    private static final float CELL_GAP = 1.0f;     // Gap that splits a line into cells, in text heights
+    private static final float ROW_GAP = 2.5f;      // Gap that ends a table, in text heights
+    private static final float COLUMN_BIN = 2f;     // Width of one x-projection bin, in points
+    private static final double NUMERIC_SHARE = 0.6; // Share of a column's cells that must be numbers
+    private static final int MAX_Y_BINS = 1 << 16;
+
+    // --- The words of the current page, in the order the stripper writes them ---
+    private String[] words = new String[256];
+    private float[] left = new float[256];
+    private float[] right = new float[256];
+    private float[] baseline = new float[256];
+    private float[] height = new float[256];
+    private int wordCount;
+
+    // --- Scratch space, reused from page to page ---
+    private int[] lineOfBin = new int[0];
+    private int[] lineOfWord = new int[256];
+    private float[] lineY = new float[64];
+    private int[] lineStart = new int[65];
+    private int[] wordsByLine = new int[256];
+    private boolean[] columnBins = new boolean[0];
+    private int[] columnOfBin = new int[0];
+
+    public static int configuredMaxSeries() {
+        return Math.max(0, Integer.getInteger("doculens.tables.max", 8));
+    }
+
+    // One word of the page: its text, left and right edge, baseline (from the top) and font size
+    public void addWord(String word, float x0, float x1, float y, float h) {
+        if (word.isBlank() || !(x1 >= x0) || !(y >= 0)) {
+            return; // Also drops NaN positions from broken fonts
+        }
+        if (wordCount == words.length) {
+            int size = wordCount * 2;
+            words = Arrays.copyOf(words, size);
+            left = Arrays.copyOf(left, size);
+            right = Arrays.copyOf(right, size);
+            baseline = Arrays.copyOf(baseline, size);
+            height = Arrays.copyOf(height, size);
+        }
+        words[wordCount] = word.trim();
+        left[wordCount] = x0;
+        right[wordCount] = x1;
+        baseline[wordCount] = y;
+        height[wordCount] = h > 0 ? h : 1;
+        wordCount++;
+    }
+
+    // The series of the tables on the page whose words were added, then gets ready for the next page
+    public List<TableSeries> finishPage(int pageNo) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.EXTRACT_TABLES)) {
+            span.items(wordCount);
+            return wordCount < MIN_ROWS * 2 ? List.of() : findTables(pageNo);
+        } finally {
+            Arrays.fill(words, 0, wordCount, null);
+            wordCount = 0;
+        }
+    }
+
+    private List<TableSeries> findTables(int pageNo) {
+        float textHeight = 0;
+        for (int i = 0; i < wordCount; i++) {
+            textHeight += height[i];
+        }
+        textHeight /= wordCount;
+
+        int lineCount = groupLines(textHeight);
+        List<List<Cell>> rows = new ArrayList<>(lineCount);
+        for (int line = 0; line < lineCount; line++) {
+            rows.add(cellsOf(line, textHeight));
+        }
+
+        // --- 3. TABLES: runs of close lines with at least two cells each ---
+        List<TableSeries> series = new ArrayList<>();
+        int start = 0;
+        for (int line = 0; line <= lineCount; line++) {
+            boolean tableRow = line < lineCount && rows.get(line).size() >= 2;
+            boolean continuesRun = tableRow && line > start && lineY[line] - lineY[line - 1] <= ROW_GAP * textHeight;
+            if (!continuesRun) {
+                // The run [start, line) ends here; a table row starts the next one
+                if (line - start >= MIN_ROWS) {
+                    readTable(rows.subList(start, line), pageNo, series);
+                }
+                start = tableRow ? line : line + 1;
+            }
+        }
+        return series;
+    }
+
+    // --- 1. LINES: words whose baselines are within half a text height; returns the line count ---
+    private int groupLines(float textHeight) {
+        float tolerance = textHeight / 2;
+        float maxY = 0;
+        for (int i = 0; i < wordCount; i++) {
+            maxY = Math.max(maxY, baseline[i]);
+        }
+        tolerance = Math.max(tolerance, maxY / (MAX_Y_BINS - 2)); // Bounds the grid for tiny text on huge pages
+        int bins = (int) (maxY / tolerance) + 2;
+        if (lineOfBin.length < bins) {
+            lineOfBin = new int[bins];
+        }
+        Arrays.fill(lineOfBin, 0, bins, -1);
+        if (lineOfWord.length < wordCount) {
+            lineOfWord = new int[words.length];
+            wordsByLine = new int[words.length];
+        }
+
+        int lineCount = 0;
+        int[] lineOfFirstBin = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            int bin = (int) (baseline[i] / tolerance);
+            int line = -1;
+            for (int b = Math.max(0, bin - 1); b <= bin + 1 && line < 0; b++) {
+                int candidate = lineOfBin[b];
+                if (candidate >= 0 && Math.abs(lineY[candidate] - baseline[i]) <= tolerance) {
+                    line = candidate;
+                }
+            }
+            if (line < 0) {
+                line = lineCount++;
+                if (line == lineY.length) {
+                    lineY = Arrays.copyOf(lineY, line * 2);
+                }
+                lineY[line] = baseline[i];
+                lineOfBin[bin] = line;
+                lineOfFirstBin[line] = bin;
+            }
+            lineOfWord[i] = line;
+        }
+
+        // Number the lines top to bottom: each line owns the bin it was started in
+        int[] rank = new int[lineCount];
+        int next = 0;
+        for (int b = 0; b < bins; b++) {
+            int line = lineOfBin[b];
+            if (line >= 0 && lineOfFirstBin[line] == b) {
+                rank[line] = next++;
+            }
+        }
+        float[] sortedY = new float[lineCount];
+        for (int line = 0; line < lineCount; line++) {
+            sortedY[rank[line]] = lineY[line];
+        }
+        System.arraycopy(sortedY, 0, lineY, 0, lineCount);
+
+        // Counting sort of the words by line, keeping the stripper's order within a line
+        if (lineStart.length < lineCount + 1) {
+            lineStart = new int[lineCount + 1];
+        }
+        Arrays.fill(lineStart, 0, lineCount + 1, 0);
+        for (int i = 0; i < wordCount; i++) {
+            lineOfWord[i] = rank[lineOfWord[i]];
+            lineStart[lineOfWord[i] + 1]++;
+        }
+        for (int line = 0; line < lineCount; line++) {
+            lineStart[line + 1] += lineStart[line];
+        }
+        int[] fill = Arrays.copyOf(lineStart, lineCount);
+        for (int i = 0; i < wordCount; i++) {
+            wordsByLine[fill[lineOfWord[i]]++] = i;
+        }
+        return lineCount;
+    }
+
+    // --- 2. CELLS: the words of a line left to right, split where the gap is wider than a space ---
+    private List<Cell> cellsOf(int line, float textHeight) {
+        int from = lineStart[line];
+        int to = lineStart[line + 1];
+        // Insertion sort by left edge: lines are short and usually already in order
+        for (int i = from + 1; i < to; i++) {
+            int word = wordsByLine[i];
+            int j = i - 1;
+            while (j >= from && left[wordsByLine[j]] > left[word]) {
+                wordsByLine[j + 1] = wordsByLine[j];
+                j--;
+            }
+            wordsByLine[j + 1] = word;
+        }
+        List<Cell> cells = new ArrayList<>();
+        Cell cell = null;
+        for (int i = from; i < to; i++) {
+            int word = wordsByLine[i];
+            if (cell != null && left[word] - cell.right <= CELL_GAP * Math.max(textHeight, height[word])) {
+                cell.text = cell.text + " " + words[word];
+                cell.right = Math.max(cell.right, right[word]);
+            } else {
+                cell = new Cell(words[word], left[word], right[word]);
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    // --- 4. COLUMNS AND SERIES of one table ---
+    private void readTable(List<List<Cell>> rows, int pageNo, List<TableSeries> series) {
+        // Columns are where the cells of the rows with numbers are: runs of covered x-projection bins
+        float maxX = 0;
+        for (List<Cell> row : rows) {
+            maxX = Math.max(maxX, row.get(row.size() - 1).right);
+        }
+        int bins = (int) (maxX / COLUMN_BIN) + 2;
+        if (columnBins.length < bins) {
+            columnBins = new boolean[bins];
+            columnOfBin = new int[bins];
+        }
+        Arrays.fill(columnBins, 0, bins, false);
+        for (List<Cell> row : rows) {
+            if (hasNumber(row)) {
+                for (Cell cell : row) {
+                    Arrays.fill(columnBins, bin(cell.left), bin(cell.right) + 1, true);
+                }
+            }
+        }
+        int columns = 0;
+        for (int b = 0; b < bins; b++) {
+            boolean startsRun = columnBins[b] && (b == 0 || !columnBins[b - 1]);
+            if (startsRun) {
+                columns++;
+            }
+            columnOfBin[b] = columnBins[b] ? columns - 1 : -1;
+        }
+        if (columns < 2) {
+            return;
+        }
+
+        String[][] grid = new String[rows.size()][columns];
+        for (int r = 0; r < rows.size(); r++) {
+            for (Cell cell : rows.get(r)) {
+                int column = columnAt(bin((cell.left + cell.right) / 2), bins);
+                grid[r][column] = grid[r][column] == null ? cell.text : grid[r][column] + " " + cell.text;
+            }
+        }
+
+        boolean header = isHeader(grid);
+        int firstRow = header ? 1 : 0;
+        for (int column = 1; column < columns; column++) {
+            int numbers = 0;
+            int filled = 0;
+            for (int r = firstRow; r < grid.length; r++) {
+                if (grid[r][column] != null) {
+                    filled++;
+                    if (!Double.isNaN(parseNumber(grid[r][column]))) {
+                        numbers++;
+                    }
+                }
+            }
+            if (numbers < MIN_POINTS || numbers < NUMERIC_SHARE * filled) {
+                continue;
+            }
+            Map<String, Double> points = new LinkedHashMap<>();
+            for (int r = firstRow; r < grid.length; r++) {
+                double value = grid[r][column] == null ? Double.NaN : parseNumber(grid[r][column]);
+                if (!Double.isNaN(value)) {
+                    String label = grid[r][0] != null ? grid[r][0] : "Row " + (r - firstRow + 1);
+                    points.putIfAbsent(label, value);
+                }
+            }
+            if (points.size() >= MIN_POINTS) {
+                String name = header && grid[0][column] != null ? grid[0][column] : "Column " + (column + 1);
+                series.add(new TableSeries(name, pageNo, points));
+            }
+        }
+    }
+
+    private int columnAt(int bin, int bins) {
+        // A cell centred in a gap (e.g. a wide header) belongs to the nearest column
+        for (int distance = 0; distance < bins; distance++) {
+            if (bin - distance >= 0 && columnOfBin[bin - distance] >= 0) {
+                return columnOfBin[bin - distance];
+            }
+            if (bin + distance < bins && columnOfBin[bin + distance] >= 0) {
+                return columnOfBin[bin + distance];
+            }
+        }
+        return 0;
+    }
+
+    private static int bin(float x) {
+        return Math.max(0, (int) (x / COLUMN_BIN));
+    }
+
+    // True if any cell after the first (the row label) is a number
+    private static boolean hasNumber(List<Cell> row) {
+        for (int i = 1; i < row.size(); i++) {
+            if (!Double.isNaN(parseNumber(row.get(i).text))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The first row names the columns if none of its cells is a value: text, or years over other numbers
+    private static boolean isHeader(String[][] grid) {
+        for (int column = 1; column < grid[0].length; column++) {
+            String cell = grid[0][column];
+            if (cell != null && !Double.isNaN(parseNumber(cell)) && !(isYear(cell) && hasOtherNumbersBelow(grid, column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // "Revenue | 2021 | 2022" over rows of amounts: the years name the columns, they are not values
+    private static boolean hasOtherNumbersBelow(String[][] grid, int column) {
+        for (int r = 1; r < grid.length; r++) {
+            String cell = grid[r][column];
+            if (cell != null && !isYear(cell) && !Double.isNaN(parseNumber(cell))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isYear(String cell) {
+        return cell.length() == 4 && cell.chars().allMatch(Character::isDigit)
+                && cell.charAt(0) >= '1' && cell.charAt(0) <= '2';
+    }
+
+    /**
+     * The value of a table cell, or NaN if it is not a number. Understands thousands separators,
+     * currency and percent signs, a leading minus (also the typographic one) and accounting
+     * negatives in parentheses: "$1,234.50", "12%", "−3.5", "(120)".
+     */
+    static double parseNumber(String cell) {
+        String s = cell.trim();
+        boolean negative = false;
+        if (s.length() > 2 && s.charAt(0) == '(' && s.charAt(s.length() - 1) == ')') {
+            negative = true;
+            s = s.substring(1, s.length() - 1).trim();
+        }
+        StringBuilder number = new StringBuilder(s.length());
+        boolean digits = false;
+        boolean dot = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number.append(c);
+                digits = true;
+            } else if (c == '.' && !dot) {
+                number.append(c);
+                dot = true;
+            } else if ((c == '-' || c == '−') && !digits && !negative) {
+                negative = true;
+            } else if (c == ',' && digits) {
+                continue; // Thousands separator
+            } else if (c != '+' && c != '$' && c != '€' && c != '£' && c != '%' && c != ' ' && c != '\u00A0') {
+                return Double.NaN; // Letters, dates, ranges...
+            }
+        }
+        if (!digits) {
+            return Double.NaN;
+        }
+        double value = Double.parseDouble(number.toString());
+        return negative ? -value : value;
+    }
+
+    private static final class Cell {
+        String text;
+        final float left;
+        float right;
+
+        Cell(String text, float left, float right) {
+            this.text = text;
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.doculens;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One numeric column of a table found on a page (see {@link TableExtractor}): the column's header
+ * and its values by row label, in table order, ready to be drawn as a chart.
+ */
+public final class TableSeries {
+
+    private final String name;
+    private final int pageNo;
+    private final Map<String, Double> points;
+
+    public TableSeries(String name, int pageNo, Map<String, Double> points) {
+        this.name = name;
+        this.pageNo = pageNo;
+        this.points = Collections.unmodifiableMap(new LinkedHashMap<>(points));
+    }
+
+    // The column header, or "Column N" when the table has none
+    public String getName() {
+        return name;
+    }
+
+    // The page the table is on (1-based)
+    public int getPageNo() {
+        return pageNo;
+    }
+
+    // Row label -> value, in the order of the rows
+    public Map<String, Double> getPoints() {
+        return points;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TableSeries)) {
+            return false;
+        }
+        TableSeries other = (TableSeries) o;
+        return pageNo == other.pageNo && name.equals(other.name) && points.equals(other.points);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, pageNo, points);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (page " + pageNo + ")";
+    }
+}
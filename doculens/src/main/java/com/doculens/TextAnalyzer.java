@@ -1,7 +1,6 @@
 package com.doculens;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class TextAnalyzer {
 
@@ -13,53 +12,150 @@ public class TextAnalyzer {
         "which", "their", "will", "its", "also", "into", "up", "out"
     );
 
+    // The same stop words packed into longs (5 bits per letter), so the scanner can
+    // look them up straight from its char buffer without creating a String
+    private static final int MAX_PACKED_LENGTH = 12;
+    private static final long[] STOP_WORD_CODES = packStopWords();
+
+    // How many words getWordFrequency returns; change with -Ddoculens.topWords=...
+    private final int topK;
+
+    public TextAnalyzer() {
+        this(Integer.getInteger("doculens.topWords", 10));
+    }
+
+    public TextAnalyzer(int topK) {
+        this.topK = topK;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
     /**
-     * Takes raw text and returns the Top 10 most frequent words.
+     * Takes raw text and returns the Top K (10 by default) most frequent words.
      */
     public Map<String, Integer> getWordFrequency(String text) {
-        Map<String, Integer> frequencyMap = new HashMap<>();
-        
         if (text == null || text.isEmpty()) {
-            return frequencyMap;
+            return new LinkedHashMap<>();
         }
 
-        // 1. Clean the text: Remove punctuation, numbers, and make lowercase
-        // "[^a-zA-Z ]" means "Replace anything that is NOT a letter or space with empty string"
-        String cleanText = text.replaceAll("[^a-zA-Z\\s]", "").toLowerCase();
-        
-        // 2. Split into words
-        String[] words = cleanText.split("\\s+");
-
-        // 3. Count meaningful words
-        for (String word : words) {
-            // Only count if it's not a stop word and has more than 2 letters
-            if (!word.isEmpty() && !STOP_WORDS.contains(word) && word.length() > 2) {
-                frequencyMap.put(word, frequencyMap.getOrDefault(word, 0) + 1);
+        WordCounts counter = WordCounts.create();
+        countWords(text, counter);
+        return getTopWords(counter, topK);
+    }
+
+    /**
+     * Adds the meaningful words of the text to a counter in a single pass over the characters.
+     * Same rules as before: anything that is not a letter or whitespace is dropped, words are
+     * split on whitespace and lower-cased, and stop words or words of 2 letters or fewer are skipped.
+     * Lets callers count a document page by page and merge the counters afterwards.
+     */
+    public void countWords(String text, WordCounts counter) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.COUNT_WORDS)) {
+            span.items(text.length());
+            scanWords(text, counter);
+        }
+    }
+
+    // Counts one word that was split off elsewhere (a CoreNLP lemma) under the same rules as countWords
+    void countToken(String token, WordCounts counter) {
+        scanWords(token, counter);
+    }
+
+    private void scanWords(String text, WordCounts counter) {
+        char[] word = new char[32]; // Reused for every word, grown if a word is longer
+        int length = 0;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+
+            if (c >= 'a' && c <= 'z') {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = (char) (c + ('a' - 'A')); // Lowercase in place
+            } else if (isWhitespace(c)) {
+                // End of a word: only count it if it has more than 2 letters and is not a stop word
+                if (length > 2 && !isStopWord(word, length)) {
+                    counter.add(word, length);
+                }
+                length = 0;
             }
+            // Anything else (digits, punctuation) is dropped without splitting the word
         }
+    }
 
-        // 4. Sort by frequency (High to Low) and take Top 10
-        // This is a Java Stream chain to sort the map values
-        return frequencyMap.entrySet().stream()
-                .sorted((k1, k2) -> k2.getValue().compareTo(k1.getValue())) // Sort descending (Big to Small)
-                .limit(10) // Only take the top 10 winners
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey, 
-                        Map.Entry::getValue, 
-                        (e1, e2) -> e1, 
-                        LinkedHashMap::new)); // LinkedHashMap keeps the sorted order
+    // Picks the top 'limit' words out of a counter (most frequent first)
+    public Map<String, Integer> getTopWords(WordCounts counter, int limit) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.TOP_WORDS)) {
+            span.items(counter.size());
+            return counter.topK(limit);
+        }
     }
-    
+
+    public Map<String, Integer> getTopWords(WordCounts counter) {
+        return getTopWords(counter, topK);
+    }
+
     // Helper method to get basic text statistics
     public String getTextStats(String text) {
         if (text == null || text.isEmpty()) {
             return "No text found";
         }
-        
-        String[] words = text.split("\\s+");
-        int wordCount = words.length;
+
+        // Count runs of non-whitespace with the same scanner rules, instead of another split().
+        // Unlike split("\\s+"), text that starts with whitespace no longer counts an empty first word
+        int wordCount = 0;
+        boolean inWord = false;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            boolean whitespace = isWhitespace(text.charAt(i));
+            if (!whitespace && !inWord) {
+                wordCount++;
+            }
+            inWord = !whitespace;
+        }
         int charCount = text.length();
-        
+
         return String.format("Words: %d | Characters: %d", wordCount, charCount);
     }
-}
\ No newline at end of file
+
+    // The characters the old "\\s" regex treated as whitespace
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == '\u000B';
+    }
+
+    static boolean isStopWord(char[] word, int length) {
+        if (length > MAX_PACKED_LENGTH) {
+            return false; // No stop word is that long
+        }
+        return Arrays.binarySearch(STOP_WORD_CODES, pack(word, length)) >= 0;
+    }
+
+    // Packs a lowercase a-z word of up to 12 letters into a long, 5 bits per letter
+    private static long pack(char[] word, int length) {
+        long code = 0;
+        for (int i = 0; i < length; i++) {
+            code = (code << 5) | (word[i] - 'a' + 1);
+        }
+        return code;
+    }
+
+    private static long[] packStopWords() {
+        long[] codes = new long[STOP_WORDS.size()];
+        int i = 0;
+        for (String stopWord : STOP_WORDS) {
+            codes[i++] = pack(stopWord.toCharArray(), stopWord.length());
+        }
+        Arrays.sort(codes);
+        return codes;
+    }
+}
@@ -0,0 +1,192 @@
+package com.doculens;
+
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Consumer;
+
+/**
+ * Renders page thumbnails of one PDF on its own background thread.
+ *
+ * Requests are served newest first, so when the user scrolls the page strip the pages that
+ * just came into view are rendered before the ones that scrolled past (those get cancelled
+ * by their cells anyway). Rendered images go into a small shared LRU cache, bounded by
+ * -Ddoculens.thumbnails.maxMb=... (32 MB by default), so scrolling back or reopening the
+ * preview does not render again.
+ *
+ * PDFBox is not thread-safe: the document is only touched by the render thread, which also
+ * closes it once {@link #close()} has been called.
+ */
+public class ThumbnailRenderer implements AutoCloseable {
+
+    private static final ImageCache CACHE = new ImageCache(Long.getLong("doculens.thumbnails.maxMb", 32) * 1024 * 1024);
+
+    private final File pdfFile;
+    private final PDDocument document;
+    private final PDFRenderer renderer;
+    private final String cacheKeyPrefix;
+    private final LinkedBlockingDeque<Request> queue = new LinkedBlockingDeque<>();
+    private volatile boolean closed;
+
+    private ThumbnailRenderer(File pdfFile, PDDocument document) {
+        this.pdfFile = pdfFile;
+        this.document = document;
+        this.renderer = new PDFRenderer(document);
+        this.cacheKeyPrefix = pdfFile.getAbsolutePath() + "|" + pdfFile.lastModified() + "|";
+
+        Thread thread = new Thread(this::renderLoop, "doculens-thumbnails");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Loads the document (slow for big files, so call this off the FX thread)
+    public static ThumbnailRenderer open(File pdfFile) throws IOException {
+        return new ThumbnailRenderer(pdfFile, DocumentParser.load(pdfFile));
+    }
+
+    public int getPageCount() {
+        return document.getNumberOfPages();
+    }
+
+    /**
+     * Asks for page 'pageIndex' (0-based) scaled to 'height' pixels. 'onReady' is called on the
+     * FX thread with the image, right away if it is already cached. Call from the FX thread.
+     */
+    public Request request(int pageIndex, int height, Consumer<Image> onReady) {
+        Request request = new Request(pageIndex, height, onReady);
+        Image cached = CACHE.get(request.cacheKey);
+        if (cached != null) {
+            onReady.accept(cached);
+            return request;
+        }
+        queue.addFirst(request);
+        return request;
+    }
+
+    // Stops rendering and releases the document; pending requests are dropped
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+        queue.addFirst(new Request(-1, 0, image -> { })); // Wakes the render thread so it can exit
+    }
+
+    private void renderLoop() {
+        try {
+            while (!closed) {
+                Request request = queue.takeFirst();
+                if (closed || request.cancelled) {
+                    continue;
+                }
+                Image image = CACHE.get(request.cacheKey);
+                if (image == null) {
+                    image = render(request);
+                    if (image == null) {
+                        continue;
+                    }
+                    CACHE.put(request.cacheKey, image);
+                }
+                Image ready = image;
+                Platform.runLater(() -> {
+                    if (!request.cancelled) {
+                        request.onReady.accept(ready);
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                document.close();
+            } catch (IOException e) {
+                System.out.println("Could not close " + pdfFile.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Image render(Request request) {
+        try (Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.THUMBNAIL, pdfFile.getName())) {
+            PDRectangle box = document.getPage(request.pageIndex).getCropBox();
+            float scale = request.height / Math.max(1f, box.getHeight());
+            BufferedImage rendered = renderer.renderImage(request.pageIndex, scale, ImageType.RGB);
+            span.items(1).bytes(4L * rendered.getWidth() * rendered.getHeight());
+            return SwingFXUtils.toFXImage(rendered, null);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not render page " + (request.pageIndex + 1) + " of " + pdfFile.getName()
+                    + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A queued thumbnail. Cancel it when its cell is reused for another page.
+     */
+    public final class Request {
+        private final int pageIndex;
+        private final int height;
+        private final Consumer<Image> onReady;
+        private final String cacheKey;
+        private volatile boolean cancelled;
+
+        private Request(int pageIndex, int height, Consumer<Image> onReady) {
+            this.pageIndex = pageIndex;
+            this.height = height;
+            this.onReady = onReady;
+            this.cacheKey = cacheKeyPrefix + pageIndex + "|" + height;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            queue.remove(this);
+        }
+    }
+
+    // LRU of rendered thumbnails, bounded by their pixel memory
+    private static class ImageCache {
+        private final long maxBytes;
+        private long usedBytes;
+        private final LinkedHashMap<String, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+
+        ImageCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Image get(String key) {
+            return images.get(key);
+        }
+
+        synchronized void put(String key, Image image) {
+            Image previous = images.put(key, image);
+            if (previous != null) {
+                usedBytes -= sizeOf(previous);
+            }
+            usedBytes += sizeOf(image);
+
+            Iterator<Map.Entry<String, Image>> eldest = images.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Image> entry = eldest.next();
+                if (entry.getValue() == image) {
+                    continue;
+                }
+                usedBytes -= sizeOf(entry.getValue());
+                eldest.remove();
+            }
+        }
+
+        private static long sizeOf(Image image) {
+            return 4L * (long) image.getWidth() * (long) image.getHeight();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.doculens;
+
+import java.util.Arrays;
+
+/**
+ * Interns words as small ints (1, 2, 3, ...), so phrases can be stored as a few packed numbers
+ * instead of Strings. Same open addressing as {@link WordCounter}: words are looked up straight
+ * from a reused char buffer, and a word's String is only created the first time it is seen.
+ *
+ * Ids fit in {@link #ID_BITS} bits, so three of them pack into one long; once that many distinct
+ * words have been seen, new words get 0 ("no id") and the caller treats them as a phrase break.
+ */
+public class TokenVocabulary {
+
+    static final int ID_BITS = 21;
+    static final int MAX_ID = (1 << ID_BITS) - 1;
+
+    private static final float MAX_LOAD = 0.6f;
+
+    private int[] table; // Open addressing: the id of the word in that slot, 0 when empty
+    private String[] words = new String[256]; // Id -> word (index 0 unused)
+    private int[] hashes = new int[256]; // Id -> String.hashCode() of the word
+    private int size;
+    private int resizeAt;
+
+    public TokenVocabulary() {
+        allocate(512);
+    }
+
+    // The id of the word in word[0..length), adding it if it is new; 0 if the vocabulary is full
+    public int intern(char[] word, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + word[i]; // Same as String.hashCode()
+        }
+        int mask = table.length - 1;
+        int slot = WordCounter.mix(hash) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot];
+            if (hashes[id] == hash && WordCounter.sameWord(words[id], word, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(slot, new String(word, 0, length), hash);
+    }
+
+    // Same as intern(char[], int), for a word that is already a String (used when merging)
+    public int intern(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int slot = WordCounter.mix(hash) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot];
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(slot, word, hash);
+    }
+
+    // The id of a word, or 0 if it has not been seen (does not add it)
+    public int find(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int slot = WordCounter.mix(hash) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot];
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public String word(int id) {
+        return words[id];
+    }
+
+    // Number of distinct words (the highest id handed out)
+    public int size() {
+        return size;
+    }
+
+    private int add(int slot, String word, int hash) {
+        if (size == MAX_ID) {
+            return 0;
+        }
+        int id = ++size;
+        if (id == words.length) {
+            words = Arrays.copyOf(words, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        words[id] = word;
+        hashes[id] = hash;
+        table[slot] = id;
+        if (size >= resizeAt) {
+            allocate(table.length * 2);
+        }
+        return id;
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        resizeAt = (int) (capacity * MAX_LOAD);
+        int mask = capacity - 1;
+        for (int id = 1; id <= size; id++) {
+            int slot = WordCounter.mix(hashes[id]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+}
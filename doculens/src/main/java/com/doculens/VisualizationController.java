@@ -1,168 +1,510 @@
 package com.doculens;
 
-import javafx.embed.swing.SwingFXUtils;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.image.WritableImage;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.PieChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import javax.imageio.ImageIO;
+import javafx.util.Duration;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Locale;
+import java.util.Optional;
 
 public class VisualizationController {
     @FXML private VBox chartContainer; // The container holding all charts
-    private File currentPdfFile;
+    @FXML private ProgressBar progressBar; // Shows how far the background analysis is
+    @FXML private Label statusLabel; // Shows which stage the analysis is in
+    @FXML private Button diagnosticsButton;
+    @FXML private TextArea diagnosticsArea; // Timings per pipeline stage (hidden until asked for)
+    @FXML private CheckBox watchCheckBox; // Re-analyse the document whenever its file changes on disk
+    private Timeline diagnosticsRefresh; // Keeps the diagnostics current while they are shown
+    private Task<?> analysisTask; // The analysis (single document or corpus) currently running, null when idle
+    private AnalysisResult currentResult; // Results of the finished analysis, reused by the CSV export
+
+    // The charts on screen, kept so live results can update them in place
+    private Label pieTitle, lineTitle, barTitle;
+    private PieChart pieChart;
+    private LineChart<String, Number> lineChart;
+    private BarChart<String, Number> barChart;
+    private Label phraseTitle;
+    private BarChart<String, Number> phraseChart;
+    private Label tableTitle;
+    private Map<TableSeries, Node> tableCharts = new LinkedHashMap<>(); // One chart per numeric table column
+    private Label ruleTitle;
+    private Map<String, Node> ruleCharts = new LinkedHashMap<>(); // Rule name -> its chart (see ExtractionRules)
+    private Label estimateNote; // Above the charts while they show a quick-look estimate
+    private String currentSource; // File name of the document, or a label for the corpus (used by the export)
+    private File currentFile; // The document on the dashboard, null in corpus mode
+    private FileWatcher watcher; // Watches currentFile while the watch box is ticked
+    private boolean refreshPending; // The file changed again while the dashboard was still updating
     
     // Use our helper classes
-    private final DataExtractor extractor = new DataExtractor();
     private final ChartGenerator factory = new ChartGenerator();
-    private final TextAnalyzer textAnalyzer = new TextAnalyzer(); // Your old word counter
 
 
     public void startAnalysis(File pdfFile) {
-        this.currentPdfFile = pdfFile;
-        chartContainer.getChildren().clear(); // Wipe the slate clean
-
-        try (PDDocument document = PDDocument.load(pdfFile)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            String fullText = stripper.getText(document);
-
-            // SAFETY CHECK: Handle Scanned PDFs (Images)
-            if (fullText.trim().isEmpty()) {
-                javafx.scene.control.Label errorLabel = new javafx.scene.control.Label("⚠️ No text detected. This PDF might be a scanned image.");
-                errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 16px; -fx-font-weight: bold;");
-                chartContainer.getChildren().add(errorLabel);
-                return;
+        this.currentSource = pdfFile.getName();
+        this.currentFile = pdfFile;
+        this.currentResult = null;
+        cancelAnalysis(); // Never let two analyses race for the same container
+        clearCharts(); // Wipe the slate clean
+        updateWatcher();
+        runAnalysis(pdfFile);
+    }
+
+    private void runAnalysis(File pdfFile) {
+        // Run the whole pipeline on a background thread so the window stays responsive
+        AnalysisTask task = new AnalysisTask(pdfFile);
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        setProgressVisible(true);
+
+        // Partial results arrive here (on the FX thread) while pages are still being read
+        task.valueProperty().addListener((observable, oldResult, partial) -> {
+            if (partial != null && task == analysisTask) {
+                showResult(partial, false);
             }
+        });
+        task.setOnSucceeded(event -> {
+            currentResult = task.getValue();
+            showResult(currentResult, true);
+            finishAnalysis(task);
+        });
+        task.setOnFailed(event -> {
+            Throwable error = task.getException();
+            error.printStackTrace();
+            chartContainer.getChildren().setAll(createErrorLabel("⚠️ Could not analyze this PDF: " + error.getMessage()));
+            finishAnalysis(task);
+        });
+        task.setOnCancelled(event -> finishAnalysis(task));
+
+        analysisTask = task;
+        BackgroundExecutor.execute(task);
+    }
+
+    /**
+     * Analyses many PDFs as one corpus and shows the combined charts (summed keywords and
+     * year values, averaged percentages) followed by a per-document breakdown.
+     */
+    public void startCorpusAnalysis(List<File> pdfFiles) {
+        this.currentSource = pdfFiles.size() + " documents";
+        this.currentFile = null;
+        this.currentResult = null;
+        cancelAnalysis();
+        clearCharts();
+        updateWatcher();
+
+        CorpusTask task = new CorpusTask(pdfFiles);
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        setProgressVisible(true);
+
+        task.setOnSucceeded(event -> {
+            CorpusResult corpus = task.getValue();
+            currentResult = corpus.getCombined();
+            showResult(currentResult, true);
+            showDocumentBreakdown(corpus);
+            finishAnalysis(task);
+        });
+        task.setOnFailed(event -> {
+            Throwable error = task.getException();
+            error.printStackTrace();
+            chartContainer.getChildren().setAll(createErrorLabel("⚠️ Could not analyze these PDFs: " + error.getMessage()));
+            finishAnalysis(task);
+        });
+        task.setOnCancelled(event -> finishAnalysis(task));
+
+        analysisTask = task;
+        BackgroundExecutor.execute(task);
+    }
+
+    // Watch mode: the file changed on disk, so analyse it again; the document cache only re-reads
+    // the pages that changed, and the charts are updated in place
+    private void refreshAnalysis() {
+        if (currentFile == null || !watchCheckBox.isSelected()) {
+            return;
+        }
+        if (analysisTask != null) {
+            refreshPending = true; // Picked up when the running analysis finishes
+            return;
+        }
+        runAnalysis(currentFile);
+    }
 
-            // --- 1. CHECK FOR PIE CHART DATA (Percentages) ---
-            Map<String, Integer> pieData = extractor.extractPieData(fullText);
-            if (!pieData.isEmpty()) {
-                Node pieChart = factory.createPieChart(pieData);
+    // Starts, moves or stops the file watcher to match the watch box and the document on screen
+    private void updateWatcher() {
+        watchCheckBox.setDisable(currentFile == null);
+        File wanted = watchCheckBox.isSelected() ? currentFile : null;
+        if (watcher != null && (wanted == null || !watcher.getFile().equals(wanted.getAbsoluteFile()))) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.out.println("Could not stop watching " + watcher.getFile().getName() + ": " + e.getMessage());
+            }
+            watcher = null;
+        }
+        if (wanted != null && watcher == null) {
+            try {
+                watcher = FileWatcher.watch(wanted, () -> Platform.runLater(this::refreshAnalysis));
+            } catch (IOException e) {
+                System.out.println("Could not watch " + wanted.getName() + ": " + e.getMessage());
+                watchCheckBox.setSelected(false);
+            }
+        }
+        refreshPending = false;
+    }
+
+    @FXML
+    private void handleWatch() {
+        updateWatcher();
+        refreshAnalysis(); // In case the file already changed since it was analysed
+    }
+
+    // The analysis still running, or null once it has finished (or was cancelled)
+    public Task<?> getAnalysisTask() {
+        return analysisTask;
+    }
+
+    // True if the dashboard already shows (or is still analysing) this document, so it can be shown as it is
+    public boolean isShowing(File pdfFile) {
+        return pdfFile.equals(currentFile) && (analysisTask != null || currentResult != null);
+    }
+
+    // Corpus mode: pages per document under the combined charts, and which files could not be read
+    private void showDocumentBreakdown(CorpusResult corpus) {
+        Map<String, Integer> pages = corpus.getPagesPerDocument();
+        if (!pages.isEmpty()) {
+            chartContainer.getChildren().addAll(createSectionTitle("Documents (" + pages.size() + ")"),
+                    factory.createBarChart(pages, "Pages per Document", "Pages"));
+        }
+        for (CorpusResult.DocumentEntry document : corpus.getDocuments()) {
+            if (document.getResult() == null) {
+                chartContainer.getChildren().add(createErrorLabel("⚠️ " + document.getSource() + ": " + document.getError()));
+            }
+        }
+    }
+
+    // Shows a (partial or final) result, updating the charts that already exist in place
+    private void showResult(AnalysisResult result, boolean finished) {
+        // SAFETY CHECK: Handle Scanned PDFs (Images)
+        if (!result.isTextFound()) {
+            if (finished) {
+                chartContainer.getChildren().setAll(createErrorLabel("⚠️ No text detected. This PDF might be a scanned image."));
+            }
+            return;
+        }
+
+        List<Node> nodes = new ArrayList<>();
+
+        // --- 0. QUICK LOOK: say the charts are estimates until the full pass replaces them ---
+        if (result.isEstimate()) {
+            if (estimateNote == null) {
+                estimateNote = new Label();
+                estimateNote.setWrapText(true);
+                estimateNote.setStyle("-fx-text-fill: #e67e22; -fx-font-size: 14px; -fx-font-style: italic;");
+            }
+            estimateNote.setText(String.format("Quick look: estimated from %d of %d pages. "
+                    + "The exact figures replace these charts when every page has been read.",
+                    result.getSampledPages(), result.getPageCount()));
+            nodes.add(estimateNote);
+        }
+
+        // --- 1. CHECK FOR PIE CHART DATA (Percentages) ---
+        if (!result.getPieData().isEmpty()) {
+            if (pieChart == null) {
                 // Add a Separator/Title for clarity
-                chartContainer.getChildren().add(createSectionTitle("Demographic Analysis"));
-                chartContainer.getChildren().add(pieChart);
+                pieTitle = createSectionTitle("Demographic Analysis");
+                pieChart = factory.createPieChart(result.getPieData());
+            } else {
+                factory.updatePieChart(pieChart, result.getPieData());
             }
+            nodes.add(pieTitle);
+            nodes.add(pieChart);
+        }
 
-            // --- 2. CHECK FOR LINE CHART DATA (Trends) ---
-            Map<String, Integer> lineData = extractor.extractLineData(fullText);
-            if (!lineData.isEmpty()) {
-                Node lineChart = factory.createLineChart(lineData);
-                chartContainer.getChildren().add(createSectionTitle("Timeline Trends"));
-                chartContainer.getChildren().add(lineChart);
+        // --- 2. CHECK FOR LINE CHART DATA (Trends) ---
+        if (!result.getLineData().isEmpty()) {
+            if (lineChart == null) {
+                lineTitle = createSectionTitle("Timeline Trends");
+                lineChart = factory.createLineChart(result.getLineData());
+            } else {
+                factory.updateLineChart(lineChart, result.getLineData());
             }
+            nodes.add(lineTitle);
+            nodes.add(lineChart);
+        }
 
-            // --- 3. ALWAYS ADD WORD FREQUENCY (Bar Chart) ---
-            // This is our fallback so the user always sees *something*
-            Map<String, Integer> wordData = textAnalyzer.getWordFrequency(fullText);
-            if (!wordData.isEmpty()) {
-                Node barChart = factory.createBarChart(wordData);
-                chartContainer.getChildren().add(createSectionTitle("Keyword Frequency"));
-                chartContainer.getChildren().add(barChart);
+        // --- 3. ALWAYS ADD WORD FREQUENCY (Bar Chart) ---
+        // This is our fallback so the user always sees *something*
+        if (!result.getWordData().isEmpty()) {
+            if (barChart == null) {
+                barTitle = createSectionTitle("Keyword Frequency");
+                barChart = factory.createBarChart(result.getWordData());
+            } else {
+                factory.updateBarChart(barChart, result.getWordData());
             }
+            // Approximate counting (-Ddoculens.wordCounts.maxEntries): say how far off the bars can be
+            barTitle.setText(result.getWordCountError() > 0
+                    ? "Keyword Frequency (approximate, counts up to " + result.getWordCountError() + " too high)"
+                    : "Keyword Frequency");
+            nodes.add(barTitle);
+            nodes.add(barChart);
+        }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        // --- 4. KEY PHRASES (two- and three-word phrases) ---
+        if (!result.getPhraseData().isEmpty()) {
+            if (phraseChart == null) {
+                phraseTitle = createSectionTitle("Key Phrases");
+                phraseChart = factory.createBarChart(result.getPhraseData(), "Phrase Frequency", "Occurrences");
+            } else {
+                factory.updateBarChart(phraseChart, result.getPhraseData());
+            }
+            nodes.add(phraseTitle);
+            nodes.add(phraseChart);
+        }
+
+        // --- 5. TABLES (numeric columns of the tables found on the pages) ---
+        if (!result.getTableData().isEmpty()) {
+            if (tableTitle == null) {
+                tableTitle = createSectionTitle("Tables");
+            }
+            // A column's values never change once its page is read, so charts are kept, not updated
+            Map<TableSeries, Node> charts = new LinkedHashMap<>();
+            for (TableSeries table : result.getTableData()) {
+                Node chart = tableCharts.get(table);
+                charts.put(table, chart != null ? chart : factory.createTableChart(table));
+            }
+            tableCharts = charts;
+            nodes.add(tableTitle);
+            nodes.addAll(charts.values());
+        }
+
+        // --- 6. CUSTOM RULES (the user's rule files: counts and totals per rule) ---
+        if (!result.getRuleData().isEmpty()) {
+            if (ruleTitle == null) {
+                ruleTitle = createSectionTitle("Custom Rules");
+            }
+            Map<String, Node> charts = new LinkedHashMap<>();
+            for (RuleSeries rule : result.getRuleData()) {
+                Node chart = ruleCharts.get(rule.getName());
+                if (chart == null) {
+                    chart = factory.createRuleChart(rule);
+                } else {
+                    factory.updateRuleChart(chart, rule);
+                }
+                charts.put(rule.getName(), chart);
+            }
+            ruleCharts = charts;
+            nodes.add(ruleTitle);
+            nodes.addAll(charts.values());
+        }
+
+        // Only touch the container when a new chart appeared, so existing charts are not re-attached
+        if (!chartContainer.getChildren().equals(nodes)) {
+            chartContainer.getChildren().setAll(nodes);
         }
     }
+
+    private void clearCharts() {
+        chartContainer.getChildren().clear();
+        pieChart = null;
+        lineChart = null;
+        barChart = null;
+        phraseChart = null;
+        tableCharts.clear();
+        ruleCharts.clear();
+    }
+
+    // Stops the running analysis (if any); safe to call more than once
+    private void cancelAnalysis() {
+        if (analysisTask != null && analysisTask.isRunning()) {
+            analysisTask.cancel();
+        }
+        analysisTask = null;
+    }
+
+    private void finishAnalysis(Task<?> task) {
+        if (task != analysisTask) {
+            return; // A newer analysis has replaced this one
+        }
+        progressBar.progressProperty().unbind();
+        statusLabel.textProperty().unbind();
+        setProgressVisible(false);
+        analysisTask = null;
+        if (refreshPending) {
+            refreshPending = false;
+            refreshAnalysis();
+        }
+    }
+
+    private void setProgressVisible(boolean visible) {
+        progressBar.setVisible(visible);
+        progressBar.setManaged(visible);
+        statusLabel.setVisible(visible);
+        statusLabel.setManaged(visible);
+    }
+
+    private javafx.scene.control.Label createErrorLabel(String message) {
+        javafx.scene.control.Label errorLabel = new javafx.scene.control.Label(message);
+        errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 16px; -fx-font-weight: bold;");
+        return errorLabel;
+    }
     // Helper method to make nice titles above each chart
     private javafx.scene.control.Label createSectionTitle(String title) {
         javafx.scene.control.Label label = new javafx.scene.control.Label(title);
         label.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #34495e; -fx-padding: 10 0 5 0;");
         return label;
     }
+    // --- THE DIAGNOSTICS PANEL ---
+    @FXML
+    private void handleDiagnostics() {
+        boolean show = !diagnosticsArea.isVisible();
+        diagnosticsArea.setVisible(show);
+        diagnosticsArea.setManaged(show);
+        diagnosticsButton.setText(show ? "Hide Diagnostics" : "Show Diagnostics");
+
+        if (show) {
+            // Refresh once a second, so a stage that is stuck shows up under "Running"
+            diagnosticsArea.setText(Diagnostics.report());
+            diagnosticsRefresh = new Timeline(new KeyFrame(Duration.seconds(1),
+                    event -> diagnosticsArea.setText(Diagnostics.report())));
+            diagnosticsRefresh.setCycleCount(Animation.INDEFINITE);
+            diagnosticsRefresh.play();
+        } else if (diagnosticsRefresh != null) {
+            diagnosticsRefresh.stop();
+            diagnosticsRefresh = null;
+        }
+    }
+
     // --- THE DOWNLOAD FEATURE ---
     @FXML
     private void handleDownload() {
-        // 1. Take a "Snapshot" of the chart container
-        WritableImage image = chartContainer.snapshot(new SnapshotParameters(), null);
-        // 2. Open Save Dialog
+        // 1. Open Save Dialog (PNG picture, or the charts as PDF pages)
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Visualization");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG Image", "*.png"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("PNG Image", "*.png"),
+                new FileChooser.ExtensionFilter("PDF Document", "*.pdf"));
         File file = fileChooser.showSaveDialog(chartContainer.getScene().getWindow());
-        if (file != null) {
-            try {
-                // 3. Save the snapshot to the hard drive
-                ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", file);
-                System.out.println("Saved to: " + file.getAbsolutePath());
-            } catch (IOException e) {
-                System.out.println("Failed to save image: " + e.getMessage());
-            }
+        if (file == null) {
+            return;
+        }
+        boolean pdf = file.getName().toLowerCase(Locale.ROOT).endsWith(".pdf")
+                || (file.getName().indexOf('.') < 0 && fileChooser.getSelectedExtensionFilter() != null
+                        && fileChooser.getSelectedExtensionFilter().getExtensions().contains("*.pdf"));
+
+        // 2. Ask for the resolution (2x is sharp on print and high-DPI screens)
+        ChoiceDialog<String> scaleDialog = new ChoiceDialog<>("2x", "1x", "2x", "3x", "4x");
+        scaleDialog.setTitle("Save Visualization");
+        scaleDialog.setHeaderText(null);
+        scaleDialog.setContentText("Resolution:");
+        Optional<String> choice = scaleDialog.showAndWait();
+        if (!choice.isPresent()) {
+            return;
         }
+        double scale = Double.parseDouble(choice.get().replace("x", ""));
+
+        // 3. Snapshot in tiles and write them on a worker thread, so big exports neither freeze
+        //    the window nor need the whole picture in memory twice
+        Task<Void> export = pdf
+                ? DashboardExporter.pdfTask(chartContainer, file, scale)
+                : DashboardExporter.pngTask(chartContainer, file, scale);
+        export.setOnFailed(e -> System.out.println("Failed to save " + file.getName() + ": "
+                + export.getException().getMessage()));
+        BackgroundExecutor.execute(export);
     }
     // --- THE  CSV Export Feature ---
 
     @FXML
     private void handleExportCSV(){
-        // ASK users where to save the file
+        if (currentResult == null) {
+            System.out.println("Analysis is still running, nothing to export yet.");
+            return;
+        }
+        // ASK users where to save the file (the chosen filter decides the format)
         FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Save CSV");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV File", "*.csv"));
+        fileChooser.setTitle("Export Results");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV File", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON File", "*.json"),
+                new FileChooser.ExtensionFilter("JSON Lines File", "*.jsonl"));
         File file = fileChooser.showSaveDialog(chartContainer.getScene().getWindow());
-        if (file != null) {
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(file)) {
-                StringBuilder sb = new StringBuilder();
-                
-                // 2. Re-run extraction to get the data (or store it in a class variable earlier)
-                // For simplicity, we re-run extraction here:
-                try (PDDocument document = PDDocument.load(currentPdfFile)) { // Make sure you have 'currentPdfFile' stored!
-                    PDFTextStripper stripper = new PDFTextStripper();
-                    String fullText = stripper.getText(document);
-
-                    // A. Check Pie Data
-                    Map<String, Integer> pieData = extractor.extractPieData(fullText);
-                    if (!pieData.isEmpty()) {
-                        sb.append("--- Demographic Data ---\n");
-                        sb.append("Category,Count\n");
-                        for (Map.Entry<String, Integer> entry : pieData.entrySet()) {
-                            sb.append(entry.getKey()).append(",").append(entry.getValue()).append("\n");
-                        }
-                        sb.append("\n");
-                    }
-
-                    // B. Check Line Data
-                    Map<String, Integer> lineData = extractor.extractLineData(fullText);
-                    if (!lineData.isEmpty()) {
-                        sb.append("--- Trend Data ---\n");
-                        sb.append("Year,Value\n");
-                        for (Map.Entry<String, Integer> entry : lineData.entrySet()) {
-                            sb.append(entry.getKey()).append(",").append(entry.getValue()).append("\n");
-                        }
-                        sb.append("\n");
-                    }
-
-                    // C. Word Frequency
-                    Map<String, Integer> wordData = textAnalyzer.getWordFrequency(fullText);
-                    if (!wordData.isEmpty()) {
-                        sb.append("--- Keyword Frequency ---\n");
-                        sb.append("Word,Count\n");
-                        for (Map.Entry<String, Integer> entry : wordData.entrySet()) {
-                            sb.append(entry.getKey()).append(",").append(entry.getValue()).append("\n");
-                        }
-                    }
-                }
-
-                // 3. Write to file
-                writer.write(sb.toString());
-                System.out.println("CSV Export successful: " + file.getAbsolutePath());
+        if (file == null) {
+            return;
+        }
+        ResultExporter.Format format = formatFor(file, fileChooser.getSelectedExtensionFilter());
 
-            } catch (IOException e) {
-                e.printStackTrace();
-                System.out.println("Failed to export CSV.");
+        // Reuse the results the dashboard already computed (no second parse of the PDF),
+        // and write them on a worker thread so a slow disk never freezes the window
+        AnalysisResult result = currentResult;
+        String source = currentSource;
+        Task<Void> export = new Task<Void>() {
+            @Override
+            protected Void call() throws IOException {
+                try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                    ResultExporter.write(format, source, result, writer);
+                }
+                return null;
             }
+        };
+        export.setOnSucceeded(e -> System.out.println("Export successful: " + file.getAbsolutePath()));
+        export.setOnFailed(e -> {
+            export.getException().printStackTrace();
+            System.out.println("Failed to export " + file.getName() + ".");
+        });
+        BackgroundExecutor.execute(export);
+    }
+
+    // The file's own extension wins; without one, use the filter the user picked
+    private static ResultExporter.Format formatFor(File file, FileChooser.ExtensionFilter filter) {
+        String name = file.getName();
+        if (name.indexOf('.') < 0 && filter != null) {
+            name = filter.getExtensions().get(0).substring(1);
         }
+        return ResultExporter.Format.fromFileName(name);
     }
     // --- THE BACK BUTTON ---
     
     @FXML
-    private void handleBack() throws IOException {
-        App.setRoot("primary");
+    private void handleBack() {
+        // A finished dashboard stays as it is, so the start screen can bring it back instantly; an
+        // analysis still running is cancelled (Back is the only way to stop it), and the diagnostics
+        // panel is closed, to stop its refresh timer
+        if (analysisTask != null) {
+            cancelAnalysis();
+            progressBar.progressProperty().unbind();
+            statusLabel.textProperty().unbind();
+            setProgressVisible(false);
+            refreshPending = false;
+            currentResult = null; // Also after a cancelled refresh, so isShowing() lets Visualize start again
+            clearCharts(); // The partial charts would look like a finished result
+            chartContainer.getChildren().setAll(createErrorLabel("Analysis cancelled. Open the document again to analyze it."));
+        }
+        if (diagnosticsArea.isVisible()) {
+            handleDiagnostics();
+        }
+        ScreenNavigator.show(ScreenNavigator.Screen.PRIMARY);
     }
 }
 
@@ -0,0 +1,235 @@
+package com.doculens;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Exact word -> count table built for the word frequency hot path.
+ * Uses open addressing over plain arrays (no boxed Integers, no entry objects), accepts words
+ * straight from a reused char buffer (a String is only created the first time a word is seen),
+ * and picks the top K words with a bounded heap instead of sorting every entry.
+ * Negative counts take occurrences out again; a word whose count drops to 0 is no longer reported.
+ */
+public class WordCounter implements WordCounts {
+
+    private static final float MAX_LOAD = 0.6f;
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] counts;
+    private int size;
+    private int resizeAt;
+
+    public WordCounter() {
+        this(256);
+    }
+
+    public WordCounter(int expectedWords) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedWords / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    @Override
+    public void add(char[] word, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + word[i]; // Same as String.hashCode(), so String keys hash the same way
+        }
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && sameWord(keys[slot], word, length)) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, new String(word, 0, length), hash, 1);
+    }
+
+    @Override
+    public void add(String word, int count) {
+        int hash = word.hashCode();
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(word)) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, word, hash, count);
+    }
+
+    @Override
+    public void merge(WordCounts other) {
+        other.forEach(this::add);
+    }
+
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null && counts[slot] > 0) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    @Override
+    public int get(String word) {
+        int hash = word.hashCode();
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(word)) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The k most frequent words, most frequent first (ties in alphabetical order).
+     * Keeps a min-heap of at most k slots, so this is O(n log k) instead of a full sort.
+     */
+    @Override
+    public Map<String, Integer> topK(int k) {
+        int[] heap = new int[Math.max(0, Math.min(k, size))];
+        int heapSize = 0;
+
+        for (int slot = 0; slot < keys.length && heap.length > 0; slot++) {
+            if (keys[slot] == null || counts[slot] <= 0) {
+                continue; // Empty, or every occurrence was taken out again (a page was removed)
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            } else if (ranksHigher(slot, heap[0])) {
+                heap[0] = slot; // Replace the weakest word we were keeping
+                siftDown(heap, heapSize);
+            }
+        }
+
+        // Drain the heap weakest-first, filling the result array from the back
+        int[] ordered = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ordered[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+
+        Map<String, Integer> top = new LinkedHashMap<>(); // LinkedHashMap keeps the sorted order
+        for (int slot : ordered) {
+            top.put(keys[slot], counts[slot]);
+        }
+        return top;
+    }
+
+    // Higher count wins; on a tie the alphabetically earlier word wins
+    private boolean ranksHigher(int slotA, int slotB) {
+        if (counts[slotA] != counts[slotB]) {
+            return counts[slotA] > counts[slotB];
+        }
+        return keys[slotA].compareTo(keys[slotB]) < 0;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksHigher(heap[parent], heap[index])) {
+                break;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        int index = 0;
+        while (true) {
+            int weakest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && ranksHigher(heap[weakest], heap[left])) {
+                weakest = left;
+            }
+            if (right < heapSize && ranksHigher(heap[weakest], heap[right])) {
+                weakest = right;
+            }
+            if (weakest == index) {
+                return;
+            }
+            swap(heap, index, weakest);
+            index = weakest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private void insert(int slot, String word, int hash, int count) {
+        keys[slot] = word;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        if (++size > resizeAt) {
+            resize();
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+        allocate(oldKeys.length * 2);
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = mix(oldHashes[i]) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            hashes[slot] = oldHashes[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    // Spreads the high bits down, since String hashes of short words cluster in the low bits
+    static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    static boolean sameWord(String key, char[] word, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
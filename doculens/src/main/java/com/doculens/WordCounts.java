@@ -0,0 +1,55 @@
+package com.doculens;
+
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A word -> count table for the word frequency pipeline.
+ *
+ * {@link WordCounter} counts every distinct word exactly. {@link SpaceSavingCounter} keeps a fixed
+ * number of entries and gives approximate counts for the frequent words, with a known error bound,
+ * for texts whose vocabulary would not fit in memory. {@link #create()} picks one from
+ * -Ddoculens.wordCounts.maxEntries=... (unset or 0 means exact counting).
+ */
+public interface WordCounts {
+
+    // Adds one occurrence of the word held in word[0..length)
+    void add(char[] word, int length);
+
+    // Adds 'count' occurrences of a word (used when merging counters)
+    void add(String word, int count);
+
+    // Folds another counter into this one (counts are summed)
+    void merge(WordCounts other);
+
+    // The (estimated) count of a word, 0 if it is not tracked
+    int get(String word);
+
+    // Number of distinct words tracked
+    int size();
+
+    // The k most frequent words, most frequent first (ties in alphabetical order)
+    Map<String, Integer> topK(int k);
+
+    // Calls the action with every tracked word and its (estimated) count
+    void forEach(ObjIntConsumer<String> action);
+
+    /**
+     * How far any reported count may be above the true count; also the most times a word that is
+     * not tracked can have occurred. Always 0 for exact counting.
+     */
+    default int getMaxError() {
+        return 0;
+    }
+
+    // The entry budget from -Ddoculens.wordCounts.maxEntries (0 = exact)
+    static int configuredMaxEntries() {
+        return Math.max(0, Integer.getInteger("doculens.wordCounts.maxEntries", 0));
+    }
+
+    // An exact counter, or an approximate one when an entry budget is configured
+    static WordCounts create() {
+        int maxEntries = configuredMaxEntries();
+        return maxEntries > 0 ? new SpaceSavingCounter(maxEntries) : new WordCounter();
+    }
+}
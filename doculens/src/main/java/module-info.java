@@ -6,6 +6,8 @@ module com.doculens {
     requires javafx.swing;      // Unlocks SwingFXUtils
     requires org.apache.pdfbox; // Unlocks PDFBox
     requires java.desktop;      // Unlocks AWT Images (Buffered Image) used by PDFBox
+    requires jdk.jfr;           // Flight Recorder events for the Diagnostics spans
+    requires stanford.corenlp;  // Lemmatised keywords (-Ddoculens.keywords=lemma)
     // -------------------------
 
     opens com.doculens to javafx.fxml;